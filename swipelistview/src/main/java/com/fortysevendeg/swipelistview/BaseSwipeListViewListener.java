@@ -2,7 +2,7 @@ package com.fortysevendeg.swipelistview;
 
 import android.view.View;
 
-public class BaseSwipeListViewListener implements SwipeListViewListener {
+public class BaseSwipeListViewListener implements SwipeListViewExtendedListener {
     @Override
     public void onOpened(int position, boolean toRight) {
     }
@@ -51,6 +51,10 @@ public class BaseSwipeListViewListener implements SwipeListViewListener {
     public void onDismiss(int[] reverseSortedPositions) {
     }
 
+    @Override
+    public void onDismissSelection(SwipeSelection selection) {
+    }
+
     @Override
     public int onChangeSwipeMode(int position) {
         return SwipeListView.SWIPE_MODE_DEFAULT;
@@ -60,6 +64,10 @@ public class BaseSwipeListViewListener implements SwipeListViewListener {
     public void onChoiceChanged(int position, boolean selected) {
     }
 
+    @Override
+    public void onChoicesChanged(int firstPosition, int lastPosition) {
+    }
+
     @Override
     public void onChoiceStarted() {
     }
@@ -91,4 +99,8 @@ public class BaseSwipeListViewListener implements SwipeListViewListener {
     @Override
     public void onFinishedLongSwipeLeft(int position) {
     }
+
+    @Override
+    public void onSwipeActionCancelled(int position) {
+    }
 }
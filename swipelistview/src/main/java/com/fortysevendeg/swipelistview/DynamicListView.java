@@ -26,6 +26,7 @@ import android.graphics.Bitmap;
 import android.graphics.Canvas;
 import android.graphics.Rect;
 import android.graphics.drawable.BitmapDrawable;
+import android.support.v4.view.ViewCompat;
 import android.util.AttributeSet;
 import android.util.DisplayMetrics;
 import android.view.HapticFeedbackConstants;
@@ -38,6 +39,7 @@ import android.widget.BaseAdapter;
 import android.widget.HeaderViewListAdapter;
 import android.widget.ListAdapter;
 
+import java.util.BitSet;
 import java.util.List;
 
 /**
@@ -66,6 +68,8 @@ public class DynamicListView extends SwipeListView {
     private static final int SMOOTH_SCROLL_AMOUNT_AT_EDGE = 15;
     private static final int MOVE_DURATION = 200;
     private static final float BITMAP_SCALE = 0.9f;
+    private static final int DRAG_SELECT_EDGE = 48;
+    private static final int DRAG_SELECT_SCROLL_AMOUNT = 12;
 
     private List mContentList;
     private BaseAdapter mAdapter;
@@ -109,7 +113,21 @@ public class DynamicListView extends SwipeListView {
 
     private int mBackgroundColor;
 
-    private int mFrontCounterRes;
+    private boolean mDragSelectEnabled = false;
+    private boolean mIsDragSelectCandidate;
+    private boolean mIsDragSelecting;
+    private boolean mDragSelectValue;
+    private int mDragSelectAnchor = INVALID_POSITION;
+    private int mDragSelectLast = INVALID_POSITION;
+    private int mDragSelectDownX;
+    private int mDragSelectDownY;
+    private int mDragSelectY;
+    private int mDragSelectEdge;
+    private int mDragSelectScrollAmount;
+    private final Rect mDragSelectRect = new Rect();
+    // State of the rows the gesture passed over, to restore them if the finger turns back.
+    private final BitSet mDragSelectSeen = new BitSet();
+    private final BitSet mDragSelectOriginal = new BitSet();
 
     public DynamicListView(Context context, int swipeBackView, int swipeFrontView, int swipeBackIconLeft, int swipeBackIconRight) {
         super(context, swipeBackView, swipeFrontView, swipeBackIconLeft, swipeBackIconRight);
@@ -130,6 +148,8 @@ public class DynamicListView extends SwipeListView {
         setOnScrollListener(mScrollListener);
         DisplayMetrics metrics = context.getResources().getDisplayMetrics();
         mSmoothScrollAmountAtEdge = (int) (SMOOTH_SCROLL_AMOUNT_AT_EDGE / metrics.density);
+        mDragSelectEdge = (int) (DRAG_SELECT_EDGE * metrics.density);
+        mDragSelectScrollAmount = (int) (DRAG_SELECT_SCROLL_AMOUNT * metrics.density);
     }
 
     /**
@@ -316,6 +336,26 @@ public class DynamicListView extends SwipeListView {
         mDragAndDropEnabled = enabled;
     }
 
+    /**
+     * Enables or disables drag to select. When enabled, pressing on the front icon column
+     * and dragging vertically selects, or unselects, every row the finger passes over,
+     * scrolling the list when the finger reaches its edges.
+     *
+     * @param enabled True to enable, false otherwise.
+     */
+    public void setDragSelectEnabled(boolean enabled) {
+        mDragSelectEnabled = enabled;
+    }
+
+    /**
+     * Determines if a drag to select gesture is in progress.
+     *
+     * @return True if it is.
+     */
+    public boolean isDragSelecting() {
+        return mIsDragSelecting;
+    }
+
     /**
      * Sets the listener for list reordering.
      *
@@ -349,7 +389,6 @@ public class DynamicListView extends SwipeListView {
      * @param frontCounter Front counter resource ID.
      */
     public void setFrontCounter(int frontCounter) {
-        mFrontCounterRes = frontCounter;
         setFrontNumber(frontCounter);
     }
 
@@ -370,10 +409,11 @@ public class DynamicListView extends SwipeListView {
             mMobileView = getViewForID(mMobileItemId);
 
             if (selectedView != null && mMobileView != null) {
-                View frontView = selectedView.findViewById(getTouchListener().getSwipeFrontView());
-                View backView = selectedView.findViewById(getTouchListener().getSwipeBackView());
-                View labelView = selectedView.findViewById(getTouchListener().getSwipeFrontLabel());
-                View frontCounter = selectedView.findViewById(mFrontCounterRes);
+                SwipeRowHolder holder = getTouchListener().getRowHolder(selectedView);
+                View frontView = holder.front;
+                View backView = holder.back;
+                View labelView = holder.label;
+                View frontCounter = holder.number;
 
                 frontView.setBackgroundColor(mBackgroundColor);
                 labelView.setVisibility(GONE);
@@ -382,7 +422,9 @@ public class DynamicListView extends SwipeListView {
                 mHoverCell = getAndAddScaledHoverView(selectedView, frontView, position);
 
                 frontView.setVisibility(GONE);
-                backView.setVisibility(GONE);
+                if (backView != null) {
+                    backView.setVisibility(GONE);
+                }
 
                 mCellIsMobile = true;
 
@@ -483,6 +525,229 @@ public class DynamicListView extends SwipeListView {
         }
     }
 
+    @Override
+    public boolean dispatchTouchEvent(MotionEvent event) {
+        if (mDragSelectEnabled && handleDragSelect(event)) {
+            return true;
+        }
+        return super.dispatchTouchEvent(event);
+    }
+
+    /**
+     * Tracks a drag to select gesture. The gesture only takes over once the finger, pressed
+     * on the front icon column, moves vertically past the touch slop; until then events
+     * flow as usual so taps on the icon still reach the listener.
+     *
+     * @return True if the event was consumed.
+     */
+    private boolean handleDragSelect(MotionEvent event) {
+        switch (event.getAction() & MotionEvent.ACTION_MASK) {
+            case MotionEvent.ACTION_DOWN: {
+                mDragSelectDownX = (int) event.getX();
+                mDragSelectDownY = (int) event.getY();
+                mDragSelectAnchor = findDragSelectPosition(mDragSelectDownX, mDragSelectDownY);
+                mIsDragSelectCandidate = mDragSelectAnchor != INVALID_POSITION;
+                return false;
+            }
+
+            case MotionEvent.ACTION_MOVE: {
+                mDragSelectY = (int) event.getY();
+                if (mIsDragSelecting) {
+                    updateDragSelection(positionUnderY(mDragSelectY));
+                    return true;
+                }
+                if (mIsDragSelectCandidate) {
+                    int deltaModeX = Math.abs((int) event.getX() - mDragSelectDownX);
+                    int deltaModeY = Math.abs(mDragSelectY - mDragSelectDownY);
+                    int slop = ViewConfiguration.get(getContext()).getScaledTouchSlop();
+                    if (deltaModeX > slop) {
+                        mIsDragSelectCandidate = false;
+                    } else if (deltaModeY > slop) {
+                        startDragSelection(event);
+                        return true;
+                    }
+                }
+                return false;
+            }
+
+            case MotionEvent.ACTION_UP:
+            case MotionEvent.ACTION_CANCEL: {
+                mIsDragSelectCandidate = false;
+                if (mIsDragSelecting) {
+                    endDragSelection();
+                    return true;
+                }
+                return false;
+            }
+        }
+        return mIsDragSelecting;
+    }
+
+    /**
+     * Gets the row whose front icon column contains the given point.
+     *
+     * @return Position, or INVALID_POSITION if the point is not on the column.
+     */
+    private int findDragSelectPosition(int x, int y) {
+        int frontIcon = getTouchListener().getSwipeFrontIcon();
+        int childIndex = childIndexUnderY(y, 0);
+        if (frontIcon == 0 || childIndex < 0) {
+            return INVALID_POSITION;
+        }
+        View icon = getTouchListener().getRowHolder(getChildAt(childIndex)).frontIcon;
+        if (icon == null || !icon.isShown()) {
+            return INVALID_POSITION;
+        }
+        icon.getDrawingRect(mDragSelectRect);
+        offsetDescendantRectToMyCoords(icon, mDragSelectRect);
+        if (x < mDragSelectRect.left || x >= mDragSelectRect.right) {
+            return INVALID_POSITION;
+        }
+        return getFirstVisiblePosition() + childIndex;
+    }
+
+    /**
+     * Takes over the gesture: cancels the touch in progress on the list and applies the
+     * selection to the anchor row.
+     */
+    private void startDragSelection(MotionEvent event) {
+        mIsDragSelecting = true;
+        mIsDragSelectCandidate = false;
+
+        if (mPendingCheckForLongPress != null) {
+            removeCallbacks(mPendingCheckForLongPress);
+        }
+        MotionEvent cancelEvent = MotionEvent.obtain(event);
+        cancelEvent.setAction(MotionEvent.ACTION_CANCEL);
+        super.dispatchTouchEvent(cancelEvent);
+        cancelEvent.recycle();
+        getTouchListener().cancelGesture();
+        if (getParent() != null) {
+            getParent().requestDisallowInterceptTouchEvent(true);
+        }
+
+        mDragSelectValue = !isPositionSelected(mDragSelectAnchor);
+        mDragSelectLast = mDragSelectAnchor;
+        int previousCount = getCountSelected();
+        applyDragSelection(mDragSelectAnchor, mDragSelectAnchor);
+        onChoicesChanged(mDragSelectAnchor, mDragSelectAnchor, previousCount);
+
+        ViewCompat.postOnAnimation(this, mDragSelectScroller);
+    }
+
+    /**
+     * Extends or shrinks the selected range so that it spans from the anchor row to the
+     * given one. Only the rows entering or leaving the range are touched, and listeners
+     * are notified once.
+     */
+    private void updateDragSelection(int position) {
+        if (position == INVALID_POSITION || position == mDragSelectLast) {
+            return;
+        }
+        int oldFirst = Math.min(mDragSelectAnchor, mDragSelectLast);
+        int oldLast = Math.max(mDragSelectAnchor, mDragSelectLast);
+        int newFirst = Math.min(mDragSelectAnchor, position);
+        int newLast = Math.max(mDragSelectAnchor, position);
+        int previousCount = getCountSelected();
+
+        restoreDragSelection(oldFirst, Math.min(oldLast, newFirst - 1));
+        restoreDragSelection(Math.max(oldFirst, newLast + 1), oldLast);
+        applyDragSelection(newFirst, Math.min(newLast, oldFirst - 1));
+        applyDragSelection(Math.max(newFirst, oldLast + 1), newLast);
+
+        mDragSelectLast = position;
+        onChoicesChanged(Math.min(oldFirst, newFirst), Math.max(oldLast, newLast), previousCount);
+    }
+
+    /**
+     * Applies the gesture's choice state to the rows in [first, last], remembering the
+     * state they had before the gesture.
+     */
+    private void applyDragSelection(int first, int last) {
+        if (first > last) {
+            return;
+        }
+        for (int i = mDragSelectSeen.nextClearBit(first); i <= last; i = mDragSelectSeen.nextClearBit(i + 1)) {
+            mDragSelectSeen.set(i);
+            mDragSelectOriginal.set(i, isPositionSelected(i));
+        }
+        getTouchListener().setCheckedRange(first, last + 1, mDragSelectValue);
+    }
+
+    /**
+     * Returns the rows in [first, last] to the state they had before the gesture.
+     */
+    private void restoreDragSelection(int first, int last) {
+        for (int i = first; i <= last; i++) {
+            getTouchListener().setChecked(i, mDragSelectOriginal.get(i));
+        }
+    }
+
+    private void endDragSelection() {
+        removeCallbacks(mDragSelectScroller);
+        mIsDragSelecting = false;
+        mDragSelectAnchor = INVALID_POSITION;
+        mDragSelectLast = INVALID_POSITION;
+        mDragSelectSeen.clear();
+        mDragSelectOriginal.clear();
+    }
+
+    /**
+     * Scrolls the list while the finger rests near one of its edges during drag to select,
+     * extending the selection over the rows that scroll under it.
+     */
+    private final Runnable mDragSelectScroller = new Runnable() {
+        @Override
+        public void run() {
+            if (!mIsDragSelecting) {
+                return;
+            }
+            int amount = 0;
+            if (mDragSelectY < mDragSelectEdge) {
+                amount = -mDragSelectScrollAmount;
+            } else if (mDragSelectY > getHeight() - mDragSelectEdge) {
+                amount = mDragSelectScrollAmount;
+            }
+            if (amount != 0) {
+                smoothScrollBy(amount, 0);
+                updateDragSelection(positionUnderY(mDragSelectY));
+            }
+            ViewCompat.postOnAnimation(DynamicListView.this, this);
+        }
+    };
+
+    /**
+     * Gets the position of the row under the given y coordinate, clamped to the visible rows.
+     */
+    private int positionUnderY(int y) {
+        int firstVisiblePosition = getFirstVisiblePosition();
+        int hint = mDragSelectLast != INVALID_POSITION ? mDragSelectLast - firstVisiblePosition : 0;
+        int childIndex = childIndexUnderY(Math.max(0, Math.min(y, getHeight() - 1)), hint);
+        return childIndex < 0 ? INVALID_POSITION : firstVisiblePosition + childIndex;
+    }
+
+    /**
+     * Gets the index of the child under the given y coordinate. The search walks from the
+     * hinted child, since the finger usually moves a row or two between events.
+     *
+     * @return Child index, or -1 if there are no children or y is below the last one.
+     */
+    private int childIndexUnderY(int y, int hint) {
+        int childCount = getChildCount();
+        if (childCount == 0) {
+            return -1;
+        }
+        int index = Math.max(0, Math.min(hint, childCount - 1));
+        while (index > 0 && y < getChildAt(index).getTop()) {
+            index--;
+        }
+        while (index < childCount - 1 && y >= getChildAt(index).getBottom()) {
+            index++;
+        }
+        View child = getChildAt(index);
+        return y >= child.getTop() && y < child.getBottom() ? index : -1;
+    }
+
     @Override
     public boolean onTouchEvent(MotionEvent event) {
         if (!getTouchListener().isSwipeEnabled() || getTouchListener().getDownPosition() == -1) {
@@ -617,7 +882,7 @@ public class DynamicListView extends SwipeListView {
 
             final long switchItemID = isBelow ? mBelowItemId : mAboveItemId;
             View switchView = isBelow ? belowView : aboveView;
-            View switchFrontView = switchView.findViewById(getTouchListener().getSwipeFrontView());
+            View switchFrontView = getTouchListener().getRowHolder(switchView).front;
             final int originalItem = getPositionForView(mMobileView);
             int swapItem = getPositionForView(switchView);
 
@@ -640,7 +905,7 @@ public class DynamicListView extends SwipeListView {
                     observer.removeOnPreDrawListener(this);
 
                     View switchView = getViewForID(switchItemID);
-                    View switchFrontView = switchView.findViewById(getTouchListener().getSwipeFrontView());
+                    View switchFrontView = getTouchListener().getRowHolder(switchView).front;
                     switchFrontView.setVisibility(VISIBLE);
 
                     mTotalOffset += deltaY;
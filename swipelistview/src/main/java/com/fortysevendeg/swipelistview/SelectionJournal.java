@@ -0,0 +1,329 @@
+/*
+ * Copyright (C) 2013 47 Degrees, LLC
+ * http://47deg.com
+ * hello@47deg.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.fortysevendeg.swipelistview;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+
+/**
+ * Selection state persisted in a memory-mapped file, so it survives process death. The
+ * file holds a hash table of 64 bit words, each one covering 64 consecutive adapter stable
+ * ids, so any id can be kept however sparse or negative: a toggle is a single word write
+ * and opening the file only scans the table.
+ * <p/>
+ * Like the in memory state, a set bit means "selected", or "not selected" while the
+ * selection is inverted.
+ */
+public class SelectionJournal {
+
+    private static final int MAGIC = 0x534c564a;
+
+    private static final int VERSION = 2;
+
+    private static final int HEADER_SIZE = 24;
+
+    private static final int OFFSET_INVERTED = 8;
+
+    private static final int OFFSET_TOTAL = 12;
+
+    private static final int OFFSET_SLOTS = 16;
+
+    private static final int SLOT_SIZE = 16;
+
+    private static final int MIN_SLOTS = 256;
+
+    private final RandomAccessFile file;
+    private final FileChannel channel;
+    private MappedByteBuffer buffer;
+    private int slots;
+    private int used;
+
+    /**
+     * Opens a journal, creating the file if it does not exist or is not a journal
+     *
+     * @param path File to keep the selection in
+     * @throws IOException if the file can not be opened or mapped
+     */
+    public SelectionJournal(File path) throws IOException {
+        file = new RandomAccessFile(path, "rw");
+        channel = file.getChannel();
+        long length = file.length();
+        if (length >= HEADER_SIZE) {
+            buffer = map(length);
+            int fileSlots = buffer.getInt(OFFSET_SLOTS);
+            if (buffer.getInt(0) == MAGIC && buffer.getInt(4) == VERSION && fileSlots >= MIN_SLOTS
+                    && Integer.bitCount(fileSlots) == 1 && sizeOf(fileSlots) <= length) {
+                slots = fileSlots;
+                used = countBlocks(false);
+                return;
+            }
+        }
+        buffer = map(sizeOf(MIN_SLOTS));
+        slots = MIN_SLOTS;
+        clear();
+        buffer.putInt(OFFSET_INVERTED, 0);
+        buffer.putInt(OFFSET_TOTAL, 0);
+        buffer.putInt(OFFSET_SLOTS, slots);
+        buffer.putInt(0, MAGIC);
+        buffer.putInt(4, VERSION);
+    }
+
+    /**
+     * Determines if an id is set
+     *
+     * @param id Adapter id
+     * @return True if it is
+     */
+    public boolean get(long id) {
+        int offset = find(id >> 6);
+        return !isFree(offset) && (buffer.getLong(offset + 8) & (1L << id)) != 0;
+    }
+
+    /**
+     * Sets or clears the bit of an id
+     *
+     * @param id    Adapter id
+     * @param value New value
+     * @throws IOException if the file needs to grow and can not. The journal is left as it
+     *                     was before the call.
+     */
+    public void set(long id, boolean value) throws IOException {
+        long block = id >> 6;
+        int offset = find(block);
+        if (isFree(offset)) {
+            if (!value) {
+                return;
+            }
+            if ((used + 1) * 4L > slots * 3L) {
+                rehash();
+                offset = find(block);
+            }
+            buffer.putLong(offset, keyOf(block));
+            used++;
+        }
+        long word = buffer.getLong(offset + 8);
+        buffer.putLong(offset + 8, value ? word | (1L << id) : word & ~(1L << id));
+    }
+
+    /**
+     * Clears every bit
+     */
+    public void clear() {
+        int end = (int) sizeOf(slots);
+        for (int offset = HEADER_SIZE; offset < end; offset += 8) {
+            buffer.putLong(offset, 0);
+        }
+        used = 0;
+    }
+
+    /**
+     * Determines if the selection is held as "every item except"
+     *
+     * @return True if it is
+     */
+    public boolean isInverted() {
+        return buffer.getInt(OFFSET_INVERTED) != 0;
+    }
+
+    /**
+     * Sets if the selection is held as "every item except"
+     *
+     * @param inverted True if it is
+     */
+    public void setInverted(boolean inverted) {
+        buffer.putInt(OFFSET_INVERTED, inverted ? 1 : 0);
+    }
+
+    /**
+     * Gets the number of items in the whole data set, used by an inverted selection
+     *
+     * @return Number of items
+     */
+    public int getTotal() {
+        return buffer.getInt(OFFSET_TOTAL);
+    }
+
+    /**
+     * Sets the number of items in the whole data set, used by an inverted selection
+     *
+     * @param total Number of items
+     */
+    public void setTotal(int total) {
+        buffer.putInt(OFFSET_TOTAL, total);
+    }
+
+    /**
+     * Gets the set ids, in ascending order, as pairs of first id and number of consecutive ids
+     *
+     * @return Runs of ids
+     */
+    public long[] getIdRuns() {
+        long[] blocks = new long[countBlocks(true)];
+        int count = 0;
+        int n = 0;
+        for (int offset = HEADER_SIZE, end = (int) sizeOf(slots); offset < end; offset += SLOT_SIZE) {
+            long word = buffer.getLong(offset + 8);
+            if (!isFree(offset) && word != 0) {
+                blocks[n++] = buffer.getLong(offset) >> 1;
+                count += Long.bitCount(word);
+            }
+        }
+        Arrays.sort(blocks, 0, n);
+        long[] ids = new long[count];
+        int i = 0;
+        for (int b = 0; b < n; b++) {
+            long word = buffer.getLong(find(blocks[b]) + 8);
+            while (word != 0) {
+                ids[i++] = (blocks[b] << 6) | Long.numberOfTrailingZeros(word);
+                word &= word - 1;
+            }
+        }
+        int runs = 0;
+        for (i = 0; i < count; i++) {
+            if (i == 0 || ids[i] != ids[i - 1] + 1) {
+                runs++;
+            }
+        }
+        long[] idRuns = new long[runs * 2];
+        int r = -2;
+        for (i = 0; i < count; i++) {
+            if (i == 0 || ids[i] != ids[i - 1] + 1) {
+                r += 2;
+                idRuns[r] = ids[i];
+            }
+            idRuns[r + 1]++;
+        }
+        return idRuns;
+    }
+
+    /**
+     * Flushes the pending writes to the storage device
+     */
+    public void force() {
+        buffer.force();
+    }
+
+    /**
+     * Flushes and closes the file
+     *
+     * @throws IOException if the file can not be closed
+     */
+    public void close() throws IOException {
+        buffer.force();
+        channel.close();
+        file.close();
+    }
+
+    /**
+     * Finds the slot of a block of ids, or the free slot where it would go
+     *
+     * @param block Id shifted right by 6
+     * @return Offset of the slot
+     */
+    private int find(long block) {
+        long key = keyOf(block);
+        int mask = slots - 1;
+        int slot = (int) ((block * 0x9e3779b97f4a7c15L) >>> 40) & mask;
+        while (true) {
+            int offset = HEADER_SIZE + slot * SLOT_SIZE;
+            long current = buffer.getLong(offset);
+            if (current == 0 || current == key) {
+                return offset;
+            }
+            slot = (slot + 1) & mask;
+        }
+    }
+
+    private boolean isFree(int offset) {
+        return buffer.getLong(offset) == 0;
+    }
+
+    /**
+     * Counts the slots in use
+     *
+     * @param setOnly True to leave out the blocks whose bits are all cleared
+     * @return Number of slots
+     */
+    private int countBlocks(boolean setOnly) {
+        int count = 0;
+        for (int offset = HEADER_SIZE, end = (int) sizeOf(slots); offset < end; offset += SLOT_SIZE) {
+            if (!isFree(offset) && (!setOnly || buffer.getLong(offset + 8) != 0)) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Moves the blocks with set bits to a new table, twice as large if they fill more than
+     * half of the current one. Blocks cleared to zero are dropped. The current table is
+     * kept if the file can not grow.
+     */
+    private void rehash() throws IOException {
+        int blocks = countBlocks(true);
+        long[] keys = new long[blocks];
+        long[] words = new long[blocks];
+        int n = 0;
+        for (int offset = HEADER_SIZE, end = (int) sizeOf(slots); offset < end; offset += SLOT_SIZE) {
+            long word = buffer.getLong(offset + 8);
+            if (!isFree(offset) && word != 0) {
+                keys[n] = buffer.getLong(offset);
+                words[n++] = word;
+            }
+        }
+        int newSlots = (n + 1) * 2L > slots ? slots * 2 : slots;
+        if (newSlots < slots) {
+            throw new IOException("Selection journal too large");
+        }
+        long size = sizeOf(newSlots);
+        if (size > Integer.MAX_VALUE) {
+            throw new IOException("Selection journal too large: " + size);
+        }
+        buffer = map(size);
+        slots = newSlots;
+        clear();
+        buffer.putInt(OFFSET_SLOTS, slots);
+        for (int i = 0; i < n; i++) {
+            int offset = find(keys[i] >> 1);
+            buffer.putLong(offset, keys[i]);
+            buffer.putLong(offset + 8, words[i]);
+        }
+        used = n;
+    }
+
+    private MappedByteBuffer map(long size) throws IOException {
+        return channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+    }
+
+    private static long sizeOf(int slots) {
+        return HEADER_SIZE + (long) slots * SLOT_SIZE;
+    }
+
+    /**
+     * Stored key of a block: never 0, which marks a free slot
+     */
+    private static long keyOf(long block) {
+        return (block << 1) | 1;
+    }
+
+}
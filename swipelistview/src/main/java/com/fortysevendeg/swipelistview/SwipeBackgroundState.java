@@ -0,0 +1,86 @@
+/*
+ * Copyright (C) 2013 47 Degrees, LLC
+ * http://47deg.com
+ * hello@47deg.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fortysevendeg.swipelistview;
+
+import static com.fortysevendeg.swipelistview.SwipeListViewTouchListener.ZONE_REGRET;
+import static com.fortysevendeg.swipelistview.SwipeListViewTouchListener.ZONE_SHORT_RIGHT;
+
+/**
+ * Decides when the container background of the swiped cell can be left out in the layered
+ * mode: once the back view covers it, that is in a valid zone the swipe did not turn back
+ * from, with an opaque background, and only after the back view faded in, so the list never
+ * shows through the row.
+ */
+final class SwipeBackgroundState {
+
+    private boolean layersEnabled;
+    private boolean covered;
+    private boolean hidden;
+
+    void setLayersEnabled(boolean enabled) {
+        layersEnabled = enabled;
+    }
+
+    /**
+     * Called when the swipe enters a zone
+     *
+     * @param zone       Swipe zone
+     * @param backOpaque True if the back view of the cell has an opaque background
+     * @return True if the container background has to be drawn again
+     */
+    boolean enterZone(int zone, boolean backOpaque) {
+        covered = layersEnabled && backOpaque && (zone & ZONE_REGRET) == 0 && zone >= ZONE_SHORT_RIGHT;
+        return !covered && show();
+    }
+
+    /**
+     * Called when the back view of the cell finished fading in
+     *
+     * @return True if the container background can be left out
+     */
+    boolean backFadedIn() {
+        if (!covered || hidden) {
+            return false;
+        }
+        hidden = true;
+        return true;
+    }
+
+    /**
+     * Called when the cell is released or stops being covered
+     *
+     * @return True if the container background has to be drawn again
+     */
+    boolean release() {
+        covered = false;
+        return show();
+    }
+
+    boolean isHidden() {
+        return hidden;
+    }
+
+    private boolean show() {
+        if (!hidden) {
+            return false;
+        }
+        hidden = false;
+        return true;
+    }
+
+}
@@ -0,0 +1,241 @@
+/*
+ * Copyright (C) 2013 47 Degrees, LLC
+ * http://47deg.com
+ * hello@47deg.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.fortysevendeg.swipelistview;
+
+import android.content.Context;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.Typeface;
+import android.text.Layout;
+import android.text.StaticLayout;
+import android.text.TextPaint;
+import android.view.View;
+
+/**
+ * Paints the swipe feedback of a row straight onto the list canvas, in the region the
+ * front view uncovers: a background color, an icon and an optional label for each swipe
+ * side and length. Texts are laid out once when they are set, so drawing a frame only
+ * fills a rectangle and draws two prepared layouts. Rows need no back view.
+ * <p/>
+ * Subclasses can override {@link #draw(Canvas, View, float, int, float)} to paint
+ * something else.
+ */
+public class SwipeDecorator {
+
+    /**
+     * Short swipe to the right
+     */
+    public final static int FEEDBACK_RIGHT = 0;
+
+    /**
+     * Short swipe to the left
+     */
+    public final static int FEEDBACK_LEFT = 1;
+
+    /**
+     * Long swipe to the right
+     */
+    public final static int FEEDBACK_LONG_RIGHT = 2;
+
+    /**
+     * Long swipe to the left
+     */
+    public final static int FEEDBACK_LONG_LEFT = 3;
+
+    private static final int FEEDBACK_COUNT = 4;
+
+    private final int[] colors = new int[FEEDBACK_COUNT];
+    private final CharSequence[] icons = new CharSequence[FEEDBACK_COUNT];
+    private final CharSequence[] labels = new CharSequence[FEEDBACK_COUNT];
+    private final StaticLayout[] iconLayouts = new StaticLayout[FEEDBACK_COUNT];
+    private final StaticLayout[] labelLayouts = new StaticLayout[FEEDBACK_COUNT];
+
+    private final Paint backgroundPaint = new Paint();
+    private final TextPaint iconPaint = new TextPaint(Paint.ANTI_ALIAS_FLAG);
+    private final TextPaint labelPaint = new TextPaint(Paint.ANTI_ALIAS_FLAG);
+
+    private final float density;
+    private int padding;
+
+    /**
+     * @param context Context used to convert dimensions
+     */
+    public SwipeDecorator(Context context) {
+        density = context.getResources().getDisplayMetrics().density;
+        padding = Math.round(16 * density);
+        iconPaint.setTextSize(24 * density);
+        labelPaint.setTextSize(14 * density);
+        backgroundPaint.setStyle(Paint.Style.FILL);
+    }
+
+    /**
+     * Sets the background colors
+     *
+     * @param right     Short swipe to the right
+     * @param left      Short swipe to the left
+     * @param longRight Long swipe to the right
+     * @param longLeft  Long swipe to the left
+     */
+    public void setColors(int right, int left, int longRight, int longLeft) {
+        colors[FEEDBACK_RIGHT] = right;
+        colors[FEEDBACK_LEFT] = left;
+        colors[FEEDBACK_LONG_RIGHT] = longRight;
+        colors[FEEDBACK_LONG_LEFT] = longLeft;
+    }
+
+    /**
+     * Sets the icon texts, usually icon font glyphs
+     *
+     * @param right     Short swipe to the right
+     * @param left      Short swipe to the left
+     * @param longRight Long swipe to the right
+     * @param longLeft  Long swipe to the left
+     */
+    public void setIcons(CharSequence right, CharSequence left, CharSequence longRight, CharSequence longLeft) {
+        icons[FEEDBACK_RIGHT] = right;
+        icons[FEEDBACK_LEFT] = left;
+        icons[FEEDBACK_LONG_RIGHT] = longRight;
+        icons[FEEDBACK_LONG_LEFT] = longLeft;
+        layoutTexts(icons, iconLayouts, iconPaint);
+    }
+
+    /**
+     * Sets the labels drawn next to the icons
+     *
+     * @param right     Short swipe to the right
+     * @param left      Short swipe to the left
+     * @param longRight Long swipe to the right
+     * @param longLeft  Long swipe to the left
+     */
+    public void setLabels(CharSequence right, CharSequence left, CharSequence longRight, CharSequence longLeft) {
+        labels[FEEDBACK_RIGHT] = right;
+        labels[FEEDBACK_LEFT] = left;
+        labels[FEEDBACK_LONG_RIGHT] = longRight;
+        labels[FEEDBACK_LONG_LEFT] = longLeft;
+        layoutTexts(labels, labelLayouts, labelPaint);
+    }
+
+    /**
+     * Sets the typeface and size of the icons
+     *
+     * @param typeface Typeface, usually an icon font
+     * @param size     Text size in pixels
+     */
+    public void setIconStyle(Typeface typeface, float size) {
+        iconPaint.setTypeface(typeface);
+        iconPaint.setTextSize(size);
+        layoutTexts(icons, iconLayouts, iconPaint);
+    }
+
+    /**
+     * Sets the size of the labels
+     *
+     * @param size Text size in pixels
+     */
+    public void setLabelSize(float size) {
+        labelPaint.setTextSize(size);
+        layoutTexts(labels, labelLayouts, labelPaint);
+    }
+
+    /**
+     * Sets the color of icons and labels
+     *
+     * @param color Text color
+     */
+    public void setTextColor(int color) {
+        iconPaint.setColor(color);
+        labelPaint.setColor(color);
+    }
+
+    /**
+     * Sets the space between the uncovered edge of the row and the icon
+     *
+     * @param padding Padding in pixels
+     */
+    public void setPadding(int padding) {
+        this.padding = padding;
+    }
+
+    /**
+     * Draws the feedback of a row
+     *
+     * @param canvas       List canvas
+     * @param row          Row view, in list coordinates
+     * @param translationX Current translation of the front content of the row
+     * @param feedback     One of the FEEDBACK_ constants
+     * @param alpha        Opacity of the feedback, from 0 to 1
+     */
+    public void draw(Canvas canvas, View row, float translationX, int feedback, float alpha) {
+        boolean toRight = translationX > 0;
+        float left = toRight ? row.getLeft() : row.getRight() + translationX;
+        float right = toRight ? row.getLeft() + translationX : row.getRight();
+        int top = row.getTop();
+        int bottom = row.getBottom();
+
+        int saveCount = canvas.save();
+        canvas.clipRect(left, top, right, bottom);
+
+        int alphaValue = Math.round(alpha * 255);
+        backgroundPaint.setColor(colors[feedback]);
+        backgroundPaint.setAlpha(Math.round(alphaValue * (colors[feedback] >>> 24) / 255f));
+        canvas.drawRect(left, top, right, bottom, backgroundPaint);
+
+        StaticLayout icon = iconLayouts[feedback];
+        StaticLayout label = labelLayouts[feedback];
+        int iconAlpha = iconPaint.getAlpha();
+        int labelAlpha = labelPaint.getAlpha();
+        iconPaint.setAlpha(Math.round(iconAlpha * alpha));
+        labelPaint.setAlpha(Math.round(labelAlpha * alpha));
+
+        float x = toRight ? left + padding : right - padding;
+        if (icon != null) {
+            x = toRight ? x : x - icon.getWidth();
+            drawLayout(canvas, icon, x, top + (bottom - top - icon.getHeight()) / 2f);
+            x = toRight ? x + icon.getWidth() + padding / 2f : x - padding / 2f;
+        }
+        if (label != null) {
+            x = toRight ? x : x - label.getWidth();
+            drawLayout(canvas, label, x, top + (bottom - top - label.getHeight()) / 2f);
+        }
+
+        iconPaint.setAlpha(iconAlpha);
+        labelPaint.setAlpha(labelAlpha);
+        canvas.restoreToCount(saveCount);
+    }
+
+    private static void drawLayout(Canvas canvas, Layout layout, float x, float y) {
+        int saveCount = canvas.save();
+        canvas.translate(x, y);
+        layout.draw(canvas);
+        canvas.restoreToCount(saveCount);
+    }
+
+    private static void layoutTexts(CharSequence[] texts, StaticLayout[] layouts, TextPaint paint) {
+        for (int i = 0; i < texts.length; i++) {
+            CharSequence text = texts[i];
+            if (text == null || text.length() == 0) {
+                layouts[i] = null;
+            } else {
+                int width = (int) Math.ceil(Layout.getDesiredWidth(text, paint));
+                layouts[i] = new StaticLayout(text, paint, width, Layout.Alignment.ALIGN_NORMAL, 1f, 0f, false);
+            }
+        }
+    }
+
+}
@@ -21,14 +21,19 @@ package com.fortysevendeg.swipelistview;
 import android.content.Context;
 import android.content.res.TypedArray;
 import android.database.DataSetObserver;
+import android.graphics.Canvas;
+import android.os.Parcel;
+import android.os.Parcelable;
 import android.support.v4.view.MotionEventCompat;
 import android.util.AttributeSet;
+import android.view.LayoutInflater;
 import android.view.MotionEvent;
 import android.view.View;
 import android.view.ViewConfiguration;
 import android.widget.ListAdapter;
 import android.widget.ListView;
 
+import java.util.Arrays;
 import java.util.List;
 
 /**
@@ -91,6 +96,11 @@ public class SwipeListView extends ListView {
      */
     public final static int SWIPE_ACTION_NONE = 2;
 
+    /**
+     * Toggles the choice state of the cell when swiped over, then returns it to its place
+     */
+    public final static int SWIPE_ACTION_CHOICE = 3;
+
     /**
      * Binds the swipe gesture to reveal a view behind the row (Drawer style)
      */
@@ -106,6 +116,16 @@ public class SwipeListView extends ListView {
      */
     public final static int LONG_SWIPE_ACTION_NONE = 2;
 
+    /**
+     * Caches the swipe policy of each row by adapter stable id
+     */
+    public final static int SWIPE_POLICY_CACHE_BY_ID = 0;
+
+    /**
+     * Caches the swipe policy of each row by item view type
+     */
+    public final static int SWIPE_POLICY_CACHE_BY_VIEW_TYPE = 1;
+
     /**
      * Default ids for front view
      */
@@ -192,6 +212,7 @@ public class SwipeListView extends ListView {
         float swipeOffsetRight = 0;
         int swipeDrawableChecked = 0;
         int swipeDrawableUnchecked = 0;
+        int swipeMovingView = 0;
 
         int swipeActionLeft = SWIPE_ACTION_REVEAL;
         int swipeActionRight = SWIPE_ACTION_REVEAL;
@@ -211,6 +232,7 @@ public class SwipeListView extends ListView {
             swipeBackView = styled.getResourceId(R.styleable.SwipeListView_swipeBackView, 0);
             swipeBackIconLeft = styled.getResourceId(R.styleable.SwipeListView_swipeBackIconLeft, 0);
             swipeBackIconRight = styled.getResourceId(R.styleable.SwipeListView_swipeBackIconRight, 0);
+            swipeMovingView = styled.getResourceId(R.styleable.SwipeListView_swipeMovingView, 0);
         }
 
         if (swipeFrontView == 0 || swipeBackView == 0) {
@@ -218,8 +240,9 @@ public class SwipeListView extends ListView {
             swipeBackView = getContext().getResources().getIdentifier(SWIPE_DEFAULT_BACK_VIEW, "id", getContext().getPackageName());
             swipeBackIconLeft = getContext().getResources().getIdentifier(SWIPE_DEFAULT_BACK_VIEW_ICON, "id", getContext().getPackageName());
 
-            if (swipeFrontView == 0 || swipeBackView == 0 || swipeBackIconLeft == 0) {
-                throw new RuntimeException(String.format("You forgot the attributes swipeFrontView, swipeBackView or swipeBackIconLeft. You can add this attributes or use '%s' and '%s' identifiers", SWIPE_DEFAULT_FRONT_VIEW, SWIPE_DEFAULT_BACK_VIEW));
+            // The back view is optional: a SwipeDecorator can paint the swipe feedback.
+            if (swipeFrontView == 0) {
+                throw new RuntimeException(String.format("You forgot the attribute swipeFrontView. You can add this attribute or use the '%s' identifier", SWIPE_DEFAULT_FRONT_VIEW));
             }
         }
 
@@ -234,6 +257,7 @@ public class SwipeListView extends ListView {
         touchListener.setSwipeActionRight(swipeActionRight);
         touchListener.setSwipeMode(swipeMode);
         touchListener.setSwipeClosesAllItemsWhenListMoves(swipeCloseAllItemsWhenMoveList);
+        touchListener.setSwipeMovingView(swipeMovingView);
         setOnTouchListener(touchListener);
         setOnScrollListener(touchListener.makeScrollListener());
     }
@@ -247,6 +271,29 @@ public class SwipeListView extends ListView {
         return touchListener.getPositionsSelected();
     }
 
+    /**
+     * Get positions selected, in ascending order, without boxing
+     *
+     * @return
+     */
+    public int[] getSelectedPositions() {
+        return touchListener.getSelectedPositions();
+    }
+
+    /**
+     * Get the first position selected at or after the given one. Iterates the selection
+     * without allocating:
+     * <pre>
+     * for (int i = list.nextSelectedPosition(0); i >= 0; i = list.nextSelectedPosition(i + 1))
+     * </pre>
+     *
+     * @param fromPosition position to start from
+     * @return Position, or {@link ListView#INVALID_POSITION} if there are no more
+     */
+    public int nextSelectedPosition(int fromPosition) {
+        return touchListener.nextSelectedPosition(fromPosition);
+    }
+
     /**
      * Count selected
      *
@@ -256,6 +303,91 @@ public class SwipeListView extends ListView {
         return touchListener.getCountSelected();
     }
 
+    /**
+     * Get if item is selected
+     *
+     * @param position position in list
+     * @return True if it is selected
+     */
+    public boolean isPositionSelected(int position) {
+        return touchListener.isChecked(position);
+    }
+
+    /**
+     * Selects or unselects a range of items, notifying listeners once
+     *
+     * @param firstPosition first position, inclusive
+     * @param lastPosition  last position, inclusive
+     * @param selected      True to select, false to unselect
+     */
+    public void selectRange(int firstPosition, int lastPosition, boolean selected) {
+        int count = getAdapter() != null ? getAdapter().getCount() : 0;
+        firstPosition = Math.max(firstPosition, 0);
+        lastPosition = Math.min(lastPosition, count - 1);
+        if (firstPosition > lastPosition) {
+            return;
+        }
+        int previousCount = touchListener.getCountSelected();
+        touchListener.setCheckedRange(firstPosition, lastPosition + 1, selected);
+        onChoicesChanged(firstPosition, lastPosition, previousCount);
+    }
+
+    /**
+     * Selects every item, notifying listeners once
+     */
+    public void selectAll() {
+        selectAll(getAdapter() != null ? getAdapter().getCount() : 0);
+    }
+
+    /**
+     * Selects every item of a data set that may be larger than what the adapter has loaded,
+     * notifying listeners once. The selection is held as "every item except" the ones
+     * unselected afterwards, so no per row state is created.
+     *
+     * @param totalCount Number of items in the whole data set
+     */
+    public void selectAll(int totalCount) {
+        int previousCount = touchListener.getCountSelected();
+        touchListener.checkAll(totalCount);
+        int count = getAdapter() != null ? getAdapter().getCount() : 0;
+        onChoicesChanged(0, count - 1, previousCount);
+    }
+
+    /**
+     * Describes the selection compactly, as ranges of positions or as "every item except"
+     * some ids, to hand it to a backend instead of a position array.
+     *
+     * @return Selection
+     */
+    public SwipeSelection getSelection() {
+        return touchListener.getSelection();
+    }
+
+    /**
+     * Inverts the selection, notifying listeners once
+     */
+    public void invertSelection() {
+        int count = getAdapter() != null ? getAdapter().getCount() : 0;
+        if (count > 0) {
+            int previousCount = touchListener.getCountSelected();
+            touchListener.invertChecked();
+            onChoicesChanged(0, count - 1, previousCount);
+        }
+    }
+
+    /**
+     * Unselects every item, notifying listeners once
+     */
+    public void clearSelection() {
+        int previousCount = touchListener.getCountSelected();
+        int first = touchListener.nextSelectedPosition(0);
+        touchListener.clearChecked();
+        if (previousCount > 0) {
+            int last = getAdapter() != null ? getAdapter().getCount() - 1 : first;
+            onChoicesChanged(first, last, previousCount);
+        }
+    }
+
     /**
      * @see android.widget.ListView#setAdapter(android.widget.ListAdapter)
      */
@@ -273,6 +405,56 @@ public class SwipeListView extends ListView {
         });
     }
 
+    /**
+     * Applies restored swipe and choice state to the rows being laid out, and moves rebound
+     * rows to the resting place of their state, after finishing a dismiss collapse that
+     * would otherwise keep moving rows bound to other positions
+     *
+     * @see android.widget.ListView#layoutChildren()
+     */
+    @Override
+    protected void layoutChildren() {
+        touchListener.finishCollapse();
+        super.layoutChildren();
+        touchListener.applyPendingState(getFirstVisiblePosition(), getLastVisiblePosition());
+        touchListener.restBoundRows();
+    }
+
+    /**
+     * Paints the swipe decorations and back snapshots over the rows
+     *
+     * @see android.view.ViewGroup#dispatchDraw(android.graphics.Canvas)
+     */
+    @Override
+    protected void dispatchDraw(Canvas canvas) {
+        super.dispatchDraw(canvas);
+        touchListener.drawSwipeDecorations(canvas);
+    }
+
+    /**
+     * @see android.widget.AbsListView#onSaveInstanceState()
+     */
+    @Override
+    public Parcelable onSaveInstanceState() {
+        SavedState state = new SavedState(super.onSaveInstanceState());
+        touchListener.saveState(state);
+        return state;
+    }
+
+    /**
+     * @see android.widget.AbsListView#onRestoreInstanceState(android.os.Parcelable)
+     */
+    @Override
+    public void onRestoreInstanceState(Parcelable state) {
+        if (!(state instanceof SavedState)) {
+            super.onRestoreInstanceState(state);
+            return;
+        }
+        SavedState savedState = (SavedState) state;
+        super.onRestoreInstanceState(savedState.getSuperState());
+        touchListener.restoreState(savedState);
+    }
+
     /**
      * Dismiss item
      *
@@ -280,7 +462,7 @@ public class SwipeListView extends ListView {
      */
     public void dismiss(int position) {
         int height = touchListener.dismiss(position);
-        if (height > 0) {
+        if (height > 0 || touchListener.isCollapsing()) {
             touchListener.handlerPendingDismisses(height);
         } else {
             int[] dismissPositions = new int[1];
@@ -291,21 +473,34 @@ public class SwipeListView extends ListView {
     }
 
     /**
-     * Dismiss items selected
+     * Dismiss items selected. An "every item except" selection is not expanded to positions;
+     * it is handed to {@link SwipeListViewExtendedListener#onDismissSelection(SwipeSelection)}
+     * instead. Other listeners get the loaded items in onDismiss.
      */
     public void dismissSelected() {
-        List<Integer> list = touchListener.getPositionsSelected();
-        int[] dismissPositions = new int[list.size()];
+        if (touchListener.isCheckedInverted() && swipeListViewListener instanceof SwipeListViewExtendedListener) {
+            SwipeSelection selection = touchListener.getSelection();
+            clearSelection();
+            onDismissSelection(selection);
+            return;
+        }
+        int[] dismissPositions = touchListener.getSelectedPositions();
+        int count = getAdapter() != null ? getAdapter().getCount() : 0;
+        int loaded = dismissPositions.length;
+        while (loaded > 0 && dismissPositions[loaded - 1] >= count) {
+            loaded--;
+        }
+        if (loaded < dismissPositions.length) {
+            dismissPositions = Arrays.copyOf(dismissPositions, loaded);
+        }
         int height = 0;
-        for (int i = 0; i < list.size(); i++) {
-            int position = list.get(i);
-            dismissPositions[i] = position;
+        for (int position : dismissPositions) {
             int auxHeight = touchListener.dismiss(position);
             if (auxHeight > 0) {
                 height = auxHeight;
             }
         }
-        if (height > 0) {
+        if (height > 0 || touchListener.isCollapsing()) {
             touchListener.handlerPendingDismisses(height);
         } else {
             onDismiss(dismissPositions);
@@ -342,6 +537,17 @@ public class SwipeListView extends ListView {
         }
     }
 
+    /**
+     * Notifies onDismissSelection
+     *
+     * @param selection Items dismissed
+     */
+    protected void onDismissSelection(SwipeSelection selection) {
+        if (swipeListViewListener instanceof SwipeListViewExtendedListener) {
+            ((SwipeListViewExtendedListener) swipeListViewListener).onDismissSelection(selection);
+        }
+    }
+
     /**
      * Start open item
      *
@@ -451,6 +657,32 @@ public class SwipeListView extends ListView {
         }
     }
 
+    /**
+     * Notifies onChoicesChanged, or onChoiceChanged for each position to a listener without
+     * it, and onChoiceStarted or onChoiceEnded when the selection becomes non empty or empty
+     *
+     * @param firstPosition first position affected
+     * @param lastPosition  last position affected
+     * @param previousCount items selected before the change
+     */
+    protected void onChoicesChanged(int firstPosition, int lastPosition, int previousCount) {
+        int count = touchListener.getCountSelected();
+        if (previousCount == 0 && count > 0) {
+            onChoiceStarted();
+        }
+        if (swipeListViewListener instanceof SwipeListViewExtendedListener) {
+            ((SwipeListViewExtendedListener) swipeListViewListener).onChoicesChanged(firstPosition, lastPosition);
+        } else if (swipeListViewListener != null) {
+            int last = Math.min(lastPosition, getAdapter() != null ? getAdapter().getCount() - 1 : -1);
+            for (int position = Math.max(firstPosition, 0); position <= last; position++) {
+                swipeListViewListener.onChoiceChanged(position, touchListener.isChecked(position));
+            }
+        }
+        if (previousCount > 0 && count == 0) {
+            onChoiceEnded();
+        }
+    }
+
     /**
      * User start choice items
      */
@@ -564,6 +796,26 @@ public class SwipeListView extends ListView {
         }
     }
 
+    /**
+     * Called when the animation of an early committed action is cancelled.
+     *
+     * @param position Position of the item.
+     */
+    protected void onSwipeActionCancelled(int position) {
+        if (swipeListViewListener instanceof SwipeListViewExtendedListener && position != ListView.INVALID_POSITION) {
+            ((SwipeListViewExtendedListener) swipeListViewListener).onSwipeActionCancelled(position);
+        }
+    }
+
+    /**
+     * Determines if the listener is told when an early committed action is cancelled
+     *
+     * @return True if it is
+     */
+    boolean canRollBackSwipeActions() {
+        return swipeListViewListener instanceof SwipeListViewExtendedListener;
+    }
+
     protected int changeSwipeMode(int position) {
         if (swipeListViewListener != null && position != ListView.INVALID_POSITION) {
             return swipeListViewListener.onChangeSwipeMode(position);
@@ -571,6 +823,19 @@ public class SwipeListView extends ListView {
         return SWIPE_MODE_DEFAULT;
     }
 
+    /**
+     * Sets the provider of per row swipe rules. It replaces
+     * {@link SwipeListViewListener#onChangeSwipeMode(int)}, and its answers are cached
+     * until the adapter changes.
+     *
+     * @param provider  Provider, or null to ask the listener on each gesture
+     * @param cacheMode SWIPE_POLICY_CACHE_BY_ID, which needs an adapter with stable ids,
+     *                  or SWIPE_POLICY_CACHE_BY_VIEW_TYPE
+     */
+    public void setSwipePolicyProvider(SwipePolicyProvider provider, int cacheMode) {
+        touchListener.setSwipePolicyProvider(provider, cacheMode);
+    }
+
     /**
      * Sets the Listener
      *
@@ -589,6 +854,119 @@ public class SwipeListView extends ListView {
         touchListener.setRightOffset(offsetRight);
     }
 
+    /**
+     * Apply swipe translations and feedback once per display frame, with the latest
+     * touch position, instead of on every touch event. Useful on high rate touch panels.
+     *
+     * @param enabled True to enable, false otherwise
+     */
+    public void setFrameSyncEnabled(boolean enabled) {
+        touchListener.setFrameSyncEnabled(enabled);
+    }
+
+    /**
+     * Extrapolate the front view position to the next frame from the finger velocity, so
+     * it does not trail behind the finger on slow devices
+     *
+     * @param enabled True to enable, false otherwise
+     */
+    public void setSwipePredictionEnabled(boolean enabled) {
+        touchListener.setSwipePredictionEnabled(enabled);
+    }
+
+    /**
+     * Get the mean error of the swipe prediction, to tune it on a device
+     *
+     * @return Mean error in pixels
+     */
+    public float getSwipePredictionError() {
+        return touchListener.getSwipePredictionError();
+    }
+
+    /**
+     * Report swipe actions as soon as the finger is lifted, while the animation runs,
+     * instead of when it ends. If the animation is then cancelled,
+     * {@link SwipeListViewExtendedListener#onSwipeActionCancelled(int)} is called. Other
+     * listeners cannot roll an action back, so they are still notified when it ends.
+     *
+     * @param enabled True to enable, false otherwise
+     */
+    public void setEarlyActionCommitEnabled(boolean enabled) {
+        touchListener.setEarlyActionCommitEnabled(enabled);
+    }
+
+    /**
+     * Collapse dismissed items by sliding the items below them up with a single animator,
+     * instead of animating their height and laying out the list on every frame. The list
+     * is laid out once, when the dismiss is reported.
+     *
+     * @param enabled True to enable, false otherwise
+     */
+    public void setTranslationDismissEnabled(boolean enabled) {
+        touchListener.setTranslationDismissEnabled(enabled);
+    }
+
+    /**
+     * Set the view of each row that holds the front view and the back icons, so a swipe
+     * translates that single container instead of each of them
+     *
+     * @param swipeMovingView Container identifier, or 0 to translate the views one by one
+     */
+    public void setSwipeMovingView(int swipeMovingView) {
+        touchListener.setSwipeMovingView(swipeMovingView);
+    }
+
+    /**
+     * Render the swiped content on a hardware layer while the gesture lasts, and skip
+     * drawing backgrounds that the back view hides
+     *
+     * @param enabled True to enable, false otherwise
+     */
+    public void setSwipeLayersEnabled(boolean enabled) {
+        touchListener.setSwipeLayersEnabled(enabled);
+    }
+
+    /**
+     * Paint the swipe feedback with a decorator on the list canvas instead of the back
+     * views, which rows then do not need
+     *
+     * @param decorator Decorator, or null to use the back views
+     */
+    public void setSwipeDecorator(SwipeDecorator decorator) {
+        touchListener.setSwipeDecorator(decorator);
+    }
+
+    /**
+     * Use one back view for all the rows instead of a back view per row. It is placed
+     * behind the row being swiped, and open rows show a snapshot of it.
+     *
+     * @param layoutId Layout of the back view, holding the back icons, or 0 to use the
+     *                 back views of the rows
+     */
+    public void setSharedBackView(int layoutId) {
+        touchListener.setSharedBackView(layoutId != 0 ? LayoutInflater.from(getContext()).inflate(layoutId, this, false) : null);
+    }
+
+    /**
+     * Get the number of backgrounds drawn under the front content of the cell being
+     * swiped, to check overdraw
+     *
+     * @return Number of backgrounds
+     */
+    public int getSwipeOverdrawCount() {
+        return touchListener.getSwipeOverdrawCount();
+    }
+
+    /**
+     * Set the fling velocity that opens, dismisses or chooses an item with a swipe
+     * shorter than the swipe threshold. Disabled by default.
+     *
+     * @param velocity Velocity in dp per second, 0 to disable
+     */
+    public void setFlingVelocityThreshold(float velocity) {
+        touchListener.setFlingVelocityThreshold(velocity);
+    }
+
     /**
      * Set offset on left
      *
@@ -607,6 +985,28 @@ public class SwipeListView extends ListView {
         touchListener.setSwipeClosesAllItemsWhenListMoves(swipeCloseAllItemsWhenMoveList);
     }
 
+    /**
+     * Keeps open and checked state attached to the same rows across data changes, inserts
+     * and reorders by keying it with {@link ListAdapter#getItemId(int)}. Only takes effect
+     * when the adapter has stable ids.
+     *
+     * @param enabled True to enable, false otherwise.
+     */
+    public void setStableIdStateEnabled(boolean enabled) {
+        touchListener.setStableIdStateEnabled(enabled);
+    }
+
+    /**
+     * Persists the selection in a memory-mapped journal so it survives process death.
+     * The selection is replaced with the one in the journal. Requires an adapter with
+     * stable ids.
+     *
+     * @param journal Journal, or null to stop persisting
+     */
+    public void setSelectionJournal(SelectionJournal journal) {
+        touchListener.setSelectionJournal(journal);
+    }
+
     /**
      * Set swipe mode
      *
@@ -751,4 +1151,59 @@ public class SwipeListView extends ListView {
         return mViewPager;
     }
 
+    /**
+     * Saved open and choice state. Rows are stored as runs of consecutive ids when the
+     * adapter has stable ids, or as runs of positions otherwise, so the state stays small
+     * for huge lists.
+     */
+    static class SavedState extends BaseSavedState {
+        int[] opened;
+        int[] openedRight;
+        int[] checked;
+        long[] openedIds;
+        long[] openedRightIds;
+        long[] checkedIds;
+        boolean checkedInverted;
+        int checkedTotal;
+
+        SavedState(Parcelable superState) {
+            super(superState);
+        }
+
+        private SavedState(Parcel in) {
+            super(in);
+            opened = in.createIntArray();
+            openedRight = in.createIntArray();
+            checked = in.createIntArray();
+            openedIds = in.createLongArray();
+            openedRightIds = in.createLongArray();
+            checkedIds = in.createLongArray();
+            checkedInverted = in.readInt() != 0;
+            checkedTotal = in.readInt();
+        }
+
+        @Override
+        public void writeToParcel(Parcel out, int flags) {
+            super.writeToParcel(out, flags);
+            out.writeIntArray(opened);
+            out.writeIntArray(openedRight);
+            out.writeIntArray(checked);
+            out.writeLongArray(openedIds);
+            out.writeLongArray(openedRightIds);
+            out.writeLongArray(checkedIds);
+            out.writeInt(checkedInverted ? 1 : 0);
+            out.writeInt(checkedTotal);
+        }
+
+        public static final Parcelable.Creator<SavedState> CREATOR = new Parcelable.Creator<SavedState>() {
+            public SavedState createFromParcel(Parcel in) {
+                return new SavedState(in);
+            }
+
+            public SavedState[] newArray(int size) {
+                return new SavedState[size];
+            }
+        };
+    }
+
 }
@@ -0,0 +1,53 @@
+/*
+ * Copyright (C) 2013 47 Degrees, LLC
+ * http://47deg.com
+ * hello@47deg.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fortysevendeg.swipelistview;
+
+/**
+ * Optional callbacks of the SwipeListView, on top of the ones every listener implements.
+ * The list checks for this interface, so existing listeners keep compiling and get the
+ * older callbacks instead. {@link BaseSwipeListViewListener} implements it.
+ */
+public interface SwipeListViewExtendedListener extends SwipeListViewListener {
+
+    /**
+     * Called once when the choice state of many items changed at once, instead of
+     * calling {@link #onChoiceChanged(int, boolean)} for each of them
+     *
+     * @param firstPosition first position that may have changed
+     * @param lastPosition  last position that may have changed
+     */
+    void onChoicesChanged(int firstPosition, int lastPosition);
+
+    /**
+     * Called when user dismisses an "every item except" selection, which may include items
+     * the adapter has not loaded
+     *
+     * @param selection Items dismissed
+     */
+    void onDismissSelection(SwipeSelection selection);
+
+    /**
+     * Called when the animation of an action that was already reported on touch up is
+     * cancelled, so the action can be rolled back. Only used when early action commit is
+     * enabled.
+     *
+     * @param position Position of the item.
+     */
+    void onSwipeActionCancelled(int position);
+
+}
@@ -21,17 +21,28 @@
 package com.fortysevendeg.swipelistview;
 
 import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
 import android.graphics.Color;
+import android.graphics.PixelFormat;
 import android.graphics.Rect;
+import android.graphics.drawable.Drawable;
+import android.os.Build;
 import android.os.Handler;
+import android.support.v4.util.LongSparseArray;
 import android.support.v4.view.MotionEventCompat;
+import android.support.v4.view.ViewCompat;
 import android.util.DisplayMetrics;
 import android.util.Log;
+import android.util.SparseIntArray;
 import android.view.MotionEvent;
+import android.view.VelocityTracker;
 import android.view.View;
 import android.view.ViewConfiguration;
 import android.view.ViewGroup;
 import android.widget.AbsListView;
+import android.widget.FrameLayout;
+import android.widget.ListAdapter;
 import android.widget.ListView;
 import android.widget.TextView;
 
@@ -39,12 +50,19 @@ import com.nineoldandroids.animation.Animator;
 import com.nineoldandroids.animation.AnimatorListenerAdapter;
 import com.nineoldandroids.animation.ValueAnimator;
 
+import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.Collections;
 import java.util.List;
 
+import static com.nineoldandroids.view.ViewHelper.getAlpha;
+import static com.nineoldandroids.view.ViewHelper.getTranslationX;
+import static com.nineoldandroids.view.ViewHelper.getTranslationY;
 import static com.nineoldandroids.view.ViewHelper.setAlpha;
 import static com.nineoldandroids.view.ViewHelper.setTranslationX;
+import static com.nineoldandroids.view.ViewHelper.setTranslationY;
 import static com.nineoldandroids.view.ViewPropertyAnimator.animate;
 
 /**
@@ -70,8 +88,12 @@ public class SwipeListViewTouchListener implements View.OnTouchListener {
     private int swipeFrontNumber = 0;
     private int swipeFrontDetailText = 0;
     private int swipeFrontLabel = 0;
+    private int swipeMovingView = 0;
 
-    private Rect rect = new Rect();
+    // Bumped whenever a sub-view id changes, so cached row holders are resolved again.
+    private int rowHolderGeneration;
+    // Bumped whenever the adapter changes, so every row is put back at its resting place
+    private int bindGeneration;
 
     // Cached ViewConfiguration and system-wide constant values
     private int slop;
@@ -82,6 +104,11 @@ public class SwipeListViewTouchListener implements View.OnTouchListener {
     private float rightOffset = 0;
 
     private int swipeThreshold;
+
+    // Fling velocity that commits a swipe in px/s, 0 when flings are not detected.
+    private float flingVelocityThreshold;
+    private int maxFlingVelocity;
+    private VelocityTracker velocityTracker;
     private int longSwipeThreshold;
     private int minSwipeThreshold;
 
@@ -111,23 +138,127 @@ public class SwipeListViewTouchListener implements View.OnTouchListener {
     private View number;
     private View detailText;
     private View label;
+    private View movingView;
     private boolean paused;
 
     private int swipeCurrentAction = SwipeListView.SWIPE_ACTION_NONE;
     private int longSwipeCurrentAction = SwipeListView.LONG_SWIPE_ACTION_NONE;
 
+    // Zones a swipe goes through. The cell views are only updated when the zone changes.
+    static final int ZONE_UNSET = -1;
+    static final int ZONE_NONE = 0;
+    static final int ZONE_NEAR_RIGHT = 1;
+    static final int ZONE_NEAR_LEFT = 2;
+    static final int ZONE_SHORT_RIGHT = 3;
+    static final int ZONE_SHORT_LEFT = 4;
+    static final int ZONE_LONG_RIGHT = 5;
+    static final int ZONE_LONG_LEFT = 6;
+    static final int ZONE_REGRET = 8;
+
+    private int swipeZone = ZONE_UNSET;
+
+    private static final int POLICY_UNKNOWN = -2;
+
+    // One frame ahead, leading the finger by at most 24dp.
+    private static final long PREDICTION_HORIZON = 16;
+    private static final int PREDICTION_MAX_LEAD = 24;
+
+    // Whether the list has been told that the current gesture is a swipe.
+    private boolean gestureCaptured;
+
+    // Latest zone and translation, applied on the next frame in frame sync mode.
+    private boolean frameSyncEnabled;
+    private boolean swipeFrameScheduled;
+    private int pendingZone = ZONE_UNSET;
+    private float pendingDeltaX;
+    private boolean hasPendingMove;
+
+    // Renders the swiped content on a hardware layer, with no hidden backgrounds.
+    private boolean swipeLayersEnabled;
+    private View layeredView;
+    private View layeredBackView;
+    private final SwipeBackgroundState backgroundState = new SwipeBackgroundState();
+    private final AnimatorListenerAdapter backFadeListener = new AnimatorListenerAdapter() {
+        @Override
+        public void onAnimationEnd(Animator animation) {
+            if (containerView != null && backgroundState.backFadedIn()) {
+                setBackground(containerView, null);
+            }
+        }
+    };
+    private final View[] nonOverlappingViews = new View[3];
+    private final boolean[] overlappingRendering = new boolean[3];
+
+    private SwipeDecorator swipeDecorator;
+    private int decoratedZone = ZONE_UNSET;
+    private final List<Animator> runningRowAnimators = new ArrayList<Animator>();
+
+    private boolean backStubPending;
+
+    private View sharedBackView;
+    private boolean sharedBackPending;
+    private View sharedBackIconLeft;
+    private View sharedBackIconRight;
+    private final LongSparseArray<Bitmap> backSnapshots = new LongSparseArray<Bitmap>();
+    private Bitmap spareBackSnapshot;
+
+    // Reports the action on touch up instead of when its animation ends.
+    private boolean earlyActionCommitEnabled;
+
+    private boolean translationDismissEnabled;
+    private boolean collapseScheduled;
+    private ValueAnimator collapseAnimator;
+    private boolean collapseTriggersAction;
+    private boolean collapseResetsCell;
+
+    // Extrapolates the translation to the next frame, null when prediction is off.
+    private SwipePredictor swipePredictor;
+
     private int swipeActionLeft = SwipeListView.SWIPE_ACTION_REVEAL;
     private int swipeActionRight = SwipeListView.SWIPE_ACTION_REVEAL;
 
     private int longSwipeActionLeft = SwipeListView.LONG_SWIPE_ACTION_DISMISS;
     private int longSwipeActionRight = SwipeListView.LONG_SWIPE_ACTION_DISMISS;
 
-    private List<Boolean> opened = new ArrayList<Boolean>();
-    private List<Boolean> openedRight = new ArrayList<Boolean>();
+    // Row state, one bit per adapter position.
+    private BitSet opened = new BitSet();
+    private BitSet openedRight = new BitSet();
     private boolean listViewMoving;
-    private List<Boolean> checked = new ArrayList<Boolean>();
-
-    private int containerBackground;
+    private BitSet checked = new BitSet();
+    private int checkedCount;
+    // When inverted, checked holds the rows left out of an "every item except" selection.
+    private boolean checkedInverted;
+    private int checkedTotal;
+    // Total supplied with checkAll while the adapter has not loaded that many items, 0 otherwise.
+    private int suppliedTotal;
+
+    // Ids restored from a saved state, applied to the row state as rows are bound.
+    private PendingIds pendingOpened;
+    private PendingIds pendingOpenedRight;
+    private PendingIds pendingChecked;
+
+    // Whether the adapter had every item enabled at the last data change.
+    private boolean adapterAllItemsEnabled;
+
+    // Per row swipe rules, cached until the adapter changes.
+    private SwipePolicyProvider swipePolicyProvider;
+    private int swipePolicyCacheMode;
+    private final LongIntMap policyById = new LongIntMap();
+    private final SparseIntArray policyByViewType = new SparseIntArray();
+    private int downSwipeMode;
+
+    // Feedback drawables and texts, resolved when they are set.
+    private final SwipeResourceCache resourceCache;
+
+    // Optional file backed copy of the checked state, keyed by adapter id.
+    private SelectionJournal selectionJournal;
+
+    // Adapter ids of every row at the last data change, used to remap row state by id.
+    private boolean stableIdStateEnabled;
+    private long[] itemIds = new long[0];
+    private int itemIdCount;
+
+    private Drawable.ConstantState containerBackground;
     private int containerColor;
     private int accentColor;
     private int rightBackgroundColor;
@@ -136,11 +267,11 @@ public class SwipeListViewTouchListener implements View.OnTouchListener {
     private int longLeftBackgroundColor;
     private int neutralBackgroundColor;
 
-    private int frontIconBackground;
-    private int frontIconRightBackground;
-    private int frontIconLongRightBackground;
-    private int frontIconLeftBackground;
-    private int frontIconLongLeftBackground;
+    private Drawable.ConstantState frontIconBackground;
+    private Drawable.ConstantState frontIconRightBackground;
+    private Drawable.ConstantState frontIconLongRightBackground;
+    private Drawable.ConstantState frontIconLeftBackground;
+    private Drawable.ConstantState frontIconLongLeftBackground;
 
     private int frontLabelBackground;
     private int frontLabelRightBackground;
@@ -148,10 +279,10 @@ public class SwipeListViewTouchListener implements View.OnTouchListener {
     private int frontLabelLeftBackground;
     private int frontLabelLongLeftBackground;
 
-    private int backIconRightText;
-    private int backIconLongRightText;
-    private int backIconLeftText;
-    private int backIconLongLeftText;
+    private CharSequence backIconRightText;
+    private CharSequence backIconLongRightText;
+    private CharSequence backIconLeftText;
+    private CharSequence backIconLongLeftText;
 
     private boolean longSwipeEnabled;
     private boolean swipeEnabled = true;
@@ -178,12 +309,14 @@ public class SwipeListViewTouchListener implements View.OnTouchListener {
      */
     public SwipeListViewTouchListener(SwipeListView swipeListView, int swipeFrontView, int swipeBackView, int swipeBackIconLeft, int swipeBackIconRight) {
         context = swipeListView.getContext();
+        resourceCache = SwipeResourceCache.get(context);
         this.swipeFrontView = swipeFrontView;
         this.swipeBackView = swipeBackView;
         this.swipeBackIconLeft = swipeBackIconLeft;
         this.swipeBackIconRight = swipeBackIconRight;
         ViewConfiguration vc = ViewConfiguration.get(swipeListView.getContext());
         slop = vc.getScaledTouchSlop();
+        maxFlingVelocity = vc.getScaledMaximumFlingVelocity();
         configShortAnimationTime = swipeListView.getContext().getResources().getInteger(android.R.integer.config_shortAnimTime);
         animationTime = configShortAnimationTime;
         this.swipeListView = swipeListView;
@@ -208,6 +341,7 @@ public class SwipeListViewTouchListener implements View.OnTouchListener {
      */
     private void setContainerView(View containerView) {
         this.containerView = containerView;
+        backgroundState.release();
     }
 
     /**
@@ -256,6 +390,16 @@ public class SwipeListViewTouchListener implements View.OnTouchListener {
      */
     public void setSwipeFrontIcon(int swipeFrontIcon) {
         this.swipeFrontIcon = swipeFrontIcon;
+        rowHolderGeneration++;
+    }
+
+    /**
+     * Get the front view icon resource.
+     *
+     * @return Icon resource ID.
+     */
+    public int getSwipeFrontIcon() {
+        return this.swipeFrontIcon;
     }
 
     /**
@@ -265,6 +409,16 @@ public class SwipeListViewTouchListener implements View.OnTouchListener {
      */
     public void setSwipeFrontNumber(int swipeFrontNumber) {
         this.swipeFrontNumber = swipeFrontNumber;
+        rowHolderGeneration++;
+    }
+
+    /**
+     * Get the front view number resource.
+     *
+     * @return View resource ID.
+     */
+    public int getSwipeFrontNumber() {
+        return this.swipeFrontNumber;
     }
 
     /**
@@ -274,6 +428,16 @@ public class SwipeListViewTouchListener implements View.OnTouchListener {
      */
     public void setSwipeFrontDetailText(int frontDetailText) {
         this.swipeFrontDetailText = frontDetailText;
+        rowHolderGeneration++;
+    }
+
+    /**
+     * Get the front detail text resource.
+     *
+     * @return Resource ID.
+     */
+    public int getSwipeFrontDetailText() {
+        return this.swipeFrontDetailText;
     }
 
     /**
@@ -326,6 +490,7 @@ public class SwipeListViewTouchListener implements View.OnTouchListener {
      */
     public void setSwipeFrontLabel(int swipeFrontLabel) {
         this.swipeFrontLabel = swipeFrontLabel;
+        rowHolderGeneration++;
     }
 
     /**
@@ -509,7 +674,7 @@ public class SwipeListViewTouchListener implements View.OnTouchListener {
      * @param background Background resource.
      */
     public void setContainerBackground(int background) {
-        this.containerBackground = background;
+        this.containerBackground = resourceCache.getDrawableState(background);
     }
 
     /**
@@ -581,7 +746,7 @@ public class SwipeListViewTouchListener implements View.OnTouchListener {
      * @param frontIconBackground Resource to set.
      */
     public void setFrontIconBackground(int frontIconBackground) {
-        this.frontIconBackground = frontIconBackground;
+        this.frontIconBackground = resourceCache.getDrawableState(frontIconBackground);
     }
 
     /**
@@ -590,7 +755,7 @@ public class SwipeListViewTouchListener implements View.OnTouchListener {
      * @param frontIconRightBackground Resource to set.
      */
     public void setFrontIconRightBackground(int frontIconRightBackground) {
-        this.frontIconRightBackground = frontIconRightBackground;
+        this.frontIconRightBackground = resourceCache.getDrawableState(frontIconRightBackground);
     }
 
     /**
@@ -599,7 +764,7 @@ public class SwipeListViewTouchListener implements View.OnTouchListener {
      * @param frontIconLongRightBackground Resource to set.
      */
     public void setFrontIconLongRightBackground(int frontIconLongRightBackground) {
-        this.frontIconLongRightBackground = frontIconLongRightBackground;
+        this.frontIconLongRightBackground = resourceCache.getDrawableState(frontIconLongRightBackground);
     }
 
     /**
@@ -608,7 +773,7 @@ public class SwipeListViewTouchListener implements View.OnTouchListener {
      * @param frontIconLeftBackground Resource to set.
      */
     public void setFrontIconLeftBackground(int frontIconLeftBackground) {
-        this.frontIconLeftBackground = frontIconLeftBackground;
+        this.frontIconLeftBackground = resourceCache.getDrawableState(frontIconLeftBackground);
     }
 
     /**
@@ -617,7 +782,7 @@ public class SwipeListViewTouchListener implements View.OnTouchListener {
      * @param frontIconLongLeftBackground Resource to set.
      */
     public void setFrontIconLongLeftBackground(int frontIconLongLeftBackground) {
-        this.frontIconLongLeftBackground = frontIconLongLeftBackground;
+        this.frontIconLongLeftBackground = resourceCache.getDrawableState(frontIconLongLeftBackground);
     }
 
     /**
@@ -626,7 +791,7 @@ public class SwipeListViewTouchListener implements View.OnTouchListener {
      * @param backIconRightText Text to set.
      */
     public void setBackIconRightText(int backIconRightText) {
-        this.backIconRightText = backIconRightText;
+        this.backIconRightText = resourceCache.getText(backIconRightText);
     }
 
     /**
@@ -635,7 +800,7 @@ public class SwipeListViewTouchListener implements View.OnTouchListener {
      * @param backIconLongRightText Text to set.
      */
     public void setBackIconLongRightText(int backIconLongRightText) {
-        this.backIconLongRightText = backIconLongRightText;
+        this.backIconLongRightText = resourceCache.getText(backIconLongRightText);
     }
 
     /**
@@ -644,7 +809,7 @@ public class SwipeListViewTouchListener implements View.OnTouchListener {
      * @param backIconLeftText Text to set.
      */
     public void setBackIconLeftText(int backIconLeftText) {
-        this.backIconLeftText = backIconLeftText;
+        this.backIconLeftText = resourceCache.getText(backIconLeftText);
     }
 
     /**
@@ -653,7 +818,7 @@ public class SwipeListViewTouchListener implements View.OnTouchListener {
      * @param backIconLongLeftText Text to set.
      */
     public void setBackIconLongLeftText(int backIconLongLeftText) {
-        this.backIconLongLeftText = backIconLongLeftText;
+        this.backIconLongLeftText = resourceCache.getText(backIconLongLeftText);
     }
 
     /**
@@ -675,306 +840,1610 @@ public class SwipeListViewTouchListener implements View.OnTouchListener {
     }
 
     /**
-     * Gets the position touched on the list.
+     * Sets if swipe updates are applied once per display frame instead of on every
+     * touch event.
      *
-     * @return Position.
+     * @param enabled True to enable, false otherwise.
      */
-    public int getDownPosition() {
-        return downPosition;
+    public void setFrameSyncEnabled(boolean enabled) {
+        frameSyncEnabled = enabled;
     }
 
     /**
-     * Adds new items when adapter is modified
+     * Sets if the front view translation is extrapolated to the next frame from the
+     * finger velocity, to hide touch latency.
+     *
+     * @param enabled True to enable, false otherwise.
      */
-    public void resetItems() {
-        if (swipeListView.getAdapter() != null) {
-            int count = swipeListView.getAdapter().getCount();
-            for (int i = opened.size(); i <= count; i++) {
-                opened.add(false);
-                openedRight.add(false);
-                checked.add(false);
-            }
+    public void setSwipePredictionEnabled(boolean enabled) {
+        if (!enabled) {
+            swipePredictor = null;
+        } else if (swipePredictor == null) {
+            swipePredictor = new SwipePredictor(PREDICTION_HORIZON, convertDpiToPixel(PREDICTION_MAX_LEAD));
         }
     }
 
     /**
-     * Gets the container view.
+     * Gets the mean distance between the predicted translations and the ones the finger
+     * then asked for.
      *
-     * @return Container view object.
+     * @return Mean error in pixels, 0 if prediction is off.
      */
-    public View getContainerView() {
-        return containerView;
+    public float getSwipePredictionError() {
+        return swipePredictor != null ? swipePredictor.getMeanError() : 0;
     }
 
     /**
-     * Gets the resource ID of the front view.
+     * Sets if the moving content is rendered on a hardware layer during a swipe, the back
+     * content is faded without offscreen compositing, and backgrounds hidden behind the
+     * back view are not drawn.
      *
-     * @return Front view resource ID.
+     * @param enabled True to enable, false otherwise.
      */
-    public int getSwipeFrontView() {
-        return swipeFrontView;
+    public void setSwipeLayersEnabled(boolean enabled) {
+        swipeLayersEnabled = enabled;
+        backgroundState.setLayersEnabled(enabled);
+        if (!enabled) {
+            releaseSwipeLayers();
+        }
     }
 
     /**
-     * Gets the resource ID of the back view.
+     * Sets the decorator that paints the swipe feedback on the list canvas. With a
+     * decorator, rows do not need a back view.
      *
-     * @return Back view resource ID.
+     * @param decorator Decorator, or null to use the back views
      */
-    public int getSwipeBackView() {
-        return swipeBackView;
+    public void setSwipeDecorator(SwipeDecorator decorator) {
+        swipeDecorator = decorator;
+        swipeListView.invalidate();
     }
 
     /**
-     * Open item
+     * Gets the decorator that paints the swipe feedback on the list canvas
      *
-     * @param position Position of list
+     * @return Decorator, or null if the back views are used
      */
-    protected void openAnimate(int position) {
-        openAnimate(swipeListView.getChildAt(position - swipeListView.getFirstVisiblePosition()).findViewById(swipeFrontView), position);
+    public SwipeDecorator getSwipeDecorator() {
+        return swipeDecorator;
     }
 
     /**
-     * Close item
+     * Sets a back view shared by all the rows. It is moved behind the row being swiped
+     * once the swipe crosses the touch slop, and open rows that are not being touched show
+     * a snapshot of it. With a shared back view, rows do not need their own. The front
+     * content, or the moving view, must be a direct child of a FrameLayout, so the back
+     * view can be stacked under it; other rows are swiped without back view.
      *
-     * @param position Position of list
+     * @param view Back view, holding the back icons, or null to use the back views of the rows
      */
-    protected void closeAnimate(int position) {
-        closeAnimate(swipeListView.getChildAt(position - swipeListView.getFirstVisiblePosition()).findViewById(swipeFrontView), position);
+    public void setSharedBackView(View view) {
+        if (sharedBackView != null && sharedBackView.getParent() != null) {
+            ((ViewGroup) sharedBackView.getParent()).removeView(sharedBackView);
+        }
+        clearBackSnapshots();
+        sharedBackView = view;
+        sharedBackIconLeft = view != null ? view.findViewById(swipeBackIconLeft) : null;
+        sharedBackIconRight = view != null ? view.findViewById(swipeBackIconRight) : null;
     }
 
     /**
-     * Unselected choice state in item
+     * Gets the back view shared by all the rows
+     *
+     * @return Back view, or null if the back views of the rows are used
      */
-    protected int dismiss(int position) {
-        int start = swipeListView.getFirstVisiblePosition();
-        int end = swipeListView.getLastVisiblePosition();
-        View view = swipeListView.getChildAt(position - start);
-        ++dismissAnimationRefCount;
-        if (position >= start && position <= end) {
-            performDismiss(view, position, false, true);
-            return view.getHeight();
-        } else {
-            pendingDismisses.add(new PendingDismissData(position, null));
-            return 0;
+    public View getSharedBackView() {
+        return sharedBackView;
+    }
+
+    /**
+     * Moves the shared back view behind the front content of the current row, laid out
+     * right away so it can be shown before the next layout pass, and brings it up to date
+     * with the current zone
+     */
+    private void attachSharedBackView() {
+        sharedBackPending = false;
+        if (!(movingViewFor(frontView).getParent() instanceof FrameLayout)) {
+            return;
+        }
+        ViewGroup host = (ViewGroup) movingViewFor(frontView).getParent();
+        removeBackSnapshot(downPosition);
+        if (sharedBackView.getParent() != host) {
+            if (sharedBackView.getParent() != null) {
+                ((ViewGroup) sharedBackView.getParent()).removeView(sharedBackView);
+            }
+            host.addView(sharedBackView, 0, new ViewGroup.LayoutParams(ViewGroup.LayoutParams.MATCH_PARENT, ViewGroup.LayoutParams.MATCH_PARENT));
+            layoutSharedBackView(host);
+        }
+        setAlpha(sharedBackView, 1f);
+        sharedBackView.setVisibility(View.VISIBLE);
+        setBackView(sharedBackView);
+        setBackIconLeft(sharedBackIconLeft);
+        setBackIconRight(sharedBackIconRight);
+        if (swipeZone != ZONE_UNSET) {
+            applySwipeZone(swipeZone);
         }
     }
 
     /**
-     * Get if item is selected
-     *
-     * @param position position in list
-     * @return
+     * Takes the shared back view out of the current row, leaving a snapshot of it if the
+     * row stays open
      */
-    protected boolean isChecked(int position) {
-        return position < checked.size() && checked.get(position);
+    private void detachSharedBackView() {
+        ViewGroup host = (ViewGroup) sharedBackView.getParent();
+        if (host == null) {
+            return;
+        }
+        if (opened.get(downPosition)) {
+            takeBackSnapshot(downPosition, parentView, host, openedRight.get(downPosition));
+        }
+        host.removeView(sharedBackView);
+    }
+
+    private void layoutSharedBackView(ViewGroup host) {
+        sharedBackView.measure(View.MeasureSpec.makeMeasureSpec(host.getWidth(), View.MeasureSpec.EXACTLY),
+                View.MeasureSpec.makeMeasureSpec(host.getHeight(), View.MeasureSpec.EXACTLY));
+        sharedBackView.layout(0, 0, host.getWidth(), host.getHeight());
     }
 
     /**
-     * Count selected
+     * Draws the strip of the shared back view that an open row reveals, as it would be
+     * placed in the row, into a bitmap. The bitmap has no alpha channel if the back view is
+     * opaque, and the last dropped snapshot is reused when it has the same size.
      *
-     * @return
+     * @param position  Position of the row
+     * @param row       Row view
+     * @param host      View of the row the back view is, or would be, placed in
+     * @param openRight True if the row is open to the right
      */
-    protected int getCountSelected() {
-        int count = 0;
-        for (int i = 0; i < checked.size(); i++) {
-            if (checked.get(i)) {
-                count++;
-            }
+    private void takeBackSnapshot(int position, View row, ViewGroup host, boolean openRight) {
+        int width = Math.min(row.getWidth(), Math.abs(openRight ? (int) (viewWidth - rightOffset) : (int) (-viewWidth + leftOffset)));
+        if (width <= 0 || row.getHeight() == 0) {
+            return;
+        }
+        if (sharedBackView.getParent() == null) {
+            layoutSharedBackView(host);
+        }
+        Drawable background = sharedBackView.getBackground();
+        Bitmap.Config config = background != null && background.getOpacity() == PixelFormat.OPAQUE ? Bitmap.Config.RGB_565 : Bitmap.Config.ARGB_8888;
+        removeBackSnapshot(position);
+        Bitmap snapshot = spareBackSnapshot;
+        spareBackSnapshot = null;
+        if (snapshot != null && (snapshot.getWidth() != width || snapshot.getHeight() != row.getHeight() || snapshot.getConfig() != config)) {
+            snapshot.recycle();
+            snapshot = null;
+        }
+        if (snapshot == null) {
+            snapshot = Bitmap.createBitmap(width, row.getHeight(), config);
+        } else {
+            snapshot.eraseColor(Color.TRANSPARENT);
+        }
+        Canvas canvas = new Canvas(snapshot);
+        if (!openRight) {
+            canvas.translate(width - row.getWidth(), 0);
+        }
+        for (View v = host; v != null && v != row; v = v.getParent() instanceof View ? (View) v.getParent() : null) {
+            canvas.translate(v.getLeft(), v.getTop());
         }
-        return count;
+        canvas.translate(sharedBackView.getLeft(), sharedBackView.getTop());
+        sharedBackView.draw(canvas);
+        backSnapshots.put(backSnapshotKey(position), snapshot);
     }
 
     /**
-     * Get positions selected
+     * Gets the key of the snapshot of a row: its stable id when the row state follows the
+     * ids across adapter changes, or its position otherwise
      *
-     * @return
+     * @param position Position of the row
+     * @return Key of the snapshot
      */
-    protected List<Integer> getPositionsSelected() {
-        List<Integer> list = new ArrayList<Integer>();
-        for (int i = 0; i < checked.size(); i++) {
-            if (checked.get(i)) {
-                list.add(i);
+    private long backSnapshotKey(int position) {
+        ListAdapter adapter = swipeListView.getAdapter();
+        if (stableIdStateEnabled && adapter != null && adapter.hasStableIds()) {
+            return adapter.getItemId(position);
+        }
+        return position;
+    }
+
+    private void removeBackSnapshot(int position) {
+        long key = backSnapshotKey(position);
+        Bitmap snapshot = backSnapshots.get(key);
+        if (snapshot != null) {
+            backSnapshots.remove(key);
+            if (spareBackSnapshot != null) {
+                spareBackSnapshot.recycle();
             }
+            spareBackSnapshot = snapshot;
+        }
+    }
+
+    private void clearBackSnapshots() {
+        for (int i = 0; i < backSnapshots.size(); i++) {
+            backSnapshots.valueAt(i).recycle();
+        }
+        backSnapshots.clear();
+        if (spareBackSnapshot != null) {
+            spareBackSnapshot.recycle();
+            spareBackSnapshot = null;
         }
-        return list;
     }
 
     /**
-     * Open item
+     * Drops the snapshots of the rows that are no longer open after an adapter change
      *
-     * @param view     affected view
-     * @param position Position of list
+     * @param count Number of rows in the adapter
      */
-    private void openAnimate(View view, int position) {
-        if (!opened.get(position)) {
-            generateRevealAnimate(view, true, false, position);
+    private void pruneBackSnapshots(int count) {
+        if (backSnapshots.size() == 0) {
+            return;
+        }
+        long[] openKeys = new long[opened.cardinality()];
+        int n = 0;
+        for (int position = opened.nextSetBit(0); position >= 0 && position < count && n < openKeys.length; position = opened.nextSetBit(position + 1)) {
+            openKeys[n++] = backSnapshotKey(position);
+        }
+        openKeys = Arrays.copyOf(openKeys, n);
+        Arrays.sort(openKeys);
+        for (int i = backSnapshots.size() - 1; i >= 0; i--) {
+            if (Arrays.binarySearch(openKeys, backSnapshots.keyAt(i)) < 0) {
+                backSnapshots.valueAt(i).recycle();
+                backSnapshots.removeAt(i);
+            }
+        }
+    }
+
+    private void drawBackSnapshot(Canvas canvas, View row, float translationX, Bitmap snapshot) {
+        int saveCount = canvas.save();
+        if (translationX > 0) {
+            canvas.clipRect(row.getLeft(), row.getTop(), row.getLeft() + translationX, row.getBottom());
+        } else {
+            canvas.clipRect(row.getRight() + translationX, row.getTop(), row.getRight(), row.getBottom());
         }
+        // The snapshot covers the revealed strip, anchored to the edge the row opened from.
+        canvas.drawBitmap(snapshot, translationX > 0 ? row.getLeft() : row.getRight() - snapshot.getWidth(), row.getTop(), null);
+        canvas.restoreToCount(saveCount);
     }
 
     /**
-     * Close item
-     *
-     * @param view     affected view
-     * @param position Position of list
+     * Redraws the list if it paints swipe decorations or back snapshots over the rows
      */
-    private void closeAnimate(View view, int position) {
-        if (opened.get(position)) {
-            generateRevealAnimate(view, true, false, position);
+    private void invalidateSwipeDecorations() {
+        if (swipeDecorator != null || backSnapshots.size() > 0) {
+            swipeListView.invalidate();
         }
     }
 
     /**
-     * Create animation
+     * Paints the swipe feedback, or the back snapshot, of the visible rows whose front
+     * content is moved away from its place, and keeps redrawing while a row animation is
+     * running
      *
-     * @param view      affected view
-     * @param swap      If state should change. If "false" returns to the original position
-     * @param swapRight If swap is true, this parameter tells if move is to the right or left
-     * @param position  Position of list
+     * @param canvas List canvas
      */
-    private void generateAnimate(final View view, final boolean swap, final boolean swapRight, final int position) {
-        // Determines the icon to animate alongside the front view.
-        View icon = swapRight ? backIconLeft : backIconRight;
-
-        if (swipingRight || swipingLeft) {
-            if (swipeCurrentAction == SwipeListView.SWIPE_ACTION_REVEAL) {
-                generateRevealAnimate(view, swap, swapRight, position);
-                animateIconReveal(icon, swapRight);
-            }
-            if (swipeCurrentAction == SwipeListView.SWIPE_ACTION_DISMISS) {
-                generateDismissAnimate(frontView, swap, swapRight, position);
-                animateIconDismiss(icon, swapRight);
+    protected void drawSwipeDecorations(Canvas canvas) {
+        if (swipeDecorator == null && backSnapshots.size() == 0) {
+            return;
+        }
+        int first = swipeListView.getFirstVisiblePosition();
+        for (int i = 0; i < swipeListView.getChildCount(); i++) {
+            View child = swipeListView.getChildAt(i);
+            SwipeRowHolder holder = getRowHolder(child);
+            if (holder.front == null) {
+                continue;
             }
-            if (swipeCurrentAction == SwipeListView.SWIPE_ACTION_NONE) {
-                generateNoActionAnimate(view, position);
+            int position = first + i;
+            float translationX = getTranslationX(holder.moving != null ? holder.moving : holder.front);
+            if (translationX == 0) {
+                continue;
             }
-        } else if (swipingLongRight || swipingLongLeft) {
-            if (longSwipeCurrentAction == SwipeListView.LONG_SWIPE_ACTION_REVEAL) {
-                generateRevealAnimate(view, swap, swapRight, position);
-                animateIconReveal(icon, swapRight);
+            Bitmap snapshot = backSnapshots.size() > 0 ? backSnapshots.get(backSnapshotKey(position)) : null;
+            if (snapshot != null) {
+                drawBackSnapshot(canvas, child, translationX, snapshot);
+                continue;
             }
-            if (longSwipeCurrentAction == SwipeListView.LONG_SWIPE_ACTION_DISMISS) {
-                generateDismissAnimate(frontView, swap, swapRight, position);
-                animateIconDismiss(icon, swapRight);
+            if (swipeDecorator == null) {
+                continue;
             }
-            if (longSwipeCurrentAction == SwipeListView.SWIPE_ACTION_NONE) {
-                generateNoActionAnimate(view, position);
+            int feedback = translationX > 0 ? SwipeDecorator.FEEDBACK_RIGHT : SwipeDecorator.FEEDBACK_LEFT;
+            float alpha = 1f;
+            if (position == downPosition && decoratedZone != ZONE_UNSET) {
+                int baseZone = decoratedZone & ~ZONE_REGRET;
+                if (baseZone == ZONE_LONG_RIGHT) {
+                    feedback = SwipeDecorator.FEEDBACK_LONG_RIGHT;
+                } else if (baseZone == ZONE_LONG_LEFT) {
+                    feedback = SwipeDecorator.FEEDBACK_LONG_LEFT;
+                }
+                if (baseZone < ZONE_SHORT_RIGHT || (decoratedZone & ZONE_REGRET) != 0) {
+                    alpha = 0.2f;
+                }
             }
-        } else {
-            generateNoActionAnimate(view, position);
+            swipeDecorator.draw(canvas, child, translationX, feedback, alpha);
+        }
+        // Moves of the finger redraw the list themselves.
+        if (!runningRowAnimators.isEmpty() || collapseAnimator != null) {
+            ViewCompat.postInvalidateOnAnimation(swipeListView);
         }
-
-        swipeListView.onMoveEnded(position);
     }
 
     /**
-     * Create no action animation
+     * Gets the translation a row is animated to when it is left alone, as the reveal
+     * animation computes it
      *
-     * @param view     affected view
-     * @param position list position
+     * @param position Position of the row
+     * @return Translation of the front content of the row
      */
-    private void generateNoActionAnimate(final View view, final int position) {
-        containerView.setBackgroundResource(containerBackground);
-
-        animate(view)
-                .translationX(0)
-                .setDuration(animationTime)
-                .setListener(new AnimatorListenerAdapter() {
-                    @Override
-                    public void onAnimationEnd(Animator animation) {
-                        if (backView != null) backView.setVisibility(View.GONE);
-                        resetCell();
-                    }
-                });
+    private int restingTranslationFor(int position) {
+        if (!opened.get(position)) {
+            return 0;
+        }
+        return openedRight.get(position) ? (int) (viewWidth - rightOffset) : (int) (-viewWidth + leftOffset);
     }
 
     /**
-     * Create dismiss animation
+     * Counts the backgrounds drawn under the front content of the cell being swiped:
+     * container, back view and front view. Used to check overdraw.
      *
-     * @param view      affected view
-     * @param swap      If will change state. If is "false" returns to the original position
-     * @param swapRight If swap is true, this parameter tells if move is to the right or left
-     * @param position  Position of list
+     * @return Number of backgrounds drawn, 0 if no cell is being swiped.
      */
-    private void generateDismissAnimate(final View view, final boolean swap, final boolean swapRight, final int position) {
-        animationMoveTo = 0;
-        if (opened.get(position)) {
-            if (!swap) {
-                animationMoveTo = openedRight.get(position) ? (int) (viewWidth - rightOffset) : (int) (-viewWidth + leftOffset);
-            }
-        } else {
-            if (swap) {
-                animationMoveTo = swapRight ? (int) (viewWidth - rightOffset) : (int) (-viewWidth + leftOffset);
-            }
+    public int getSwipeOverdrawCount() {
+        if (downPosition == ListView.INVALID_POSITION || frontView == null) {
+            return 0;
         }
+        return overdrawCount(containerView != null && containerView.getBackground() != null,
+                backView != null && backView.getVisibility() == View.VISIBLE && backView.getBackground() != null,
+                frontView.getBackground() != null);
+    }
 
-        containerView.setBackgroundResource(containerBackground);
+    /**
+     * Counts the backgrounds drawn under the front content of a cell
+     *
+     * @param container True if the container background is drawn
+     * @param back      True if the back view background is drawn
+     * @param front     True if the front view background is drawn
+     * @return Number of backgrounds drawn
+     */
+    static int overdrawCount(boolean container, boolean back, boolean front) {
+        return (container ? 1 : 0) + (back ? 1 : 0) + (front ? 1 : 0);
+    }
 
-        animate(view)
-                .translationX(animationMoveTo)
-                .setDuration(animationTime)
-                .setListener(new AnimatorListenerAdapter() {
-                    @Override
-                    public void onAnimationEnd(Animator animation) {
-                        if (swap) {
-                            closeOpenedItems();
-                            performDismiss(frontView, position, true, true);
-                            performDismiss(backView, position, true, false);
-                        }
-                    }
-                });
+    /**
+     * Sets if swipe actions are reported on touch up, concurrently with their animation,
+     * instead of when the animation ends.
+     *
+     * @param enabled True to enable, false otherwise.
+     */
+    public void setEarlyActionCommitEnabled(boolean enabled) {
+        earlyActionCommitEnabled = enabled;
+    }
 
+    /**
+     * Sets if dismissed rows are collapsed by sliding the rows below them up, instead of
+     * animating their height. The list is laid out once, when the dismiss is reported.
+     *
+     * @param enabled True to enable, false otherwise.
+     */
+    public void setTranslationDismissEnabled(boolean enabled) {
+        translationDismissEnabled = enabled;
     }
 
-    private void animateIconDismiss(View view, boolean swapRight) {
-        int moveTo = swapRight ? (int) (viewWidth - rightOffset) : (int) (-viewWidth + leftOffset);
+    /**
+     * Sets the fling velocity that commits a swipe shorter than the swipe threshold.
+     *
+     * @param velocity Velocity in dp per second, 0 to only commit by distance.
+     */
+    public void setFlingVelocityThreshold(float velocity) {
+        flingVelocityThreshold = velocity * context.getResources().getDisplayMetrics().density;
+    }
 
-        animate(view)
-                .translationX(animationMoveTo)
-                .setDuration(animationTime)
-                .setListener(null);
+    /**
+     * Gets the position touched on the list.
+     *
+     * @return Position.
+     */
+    public int getDownPosition() {
+        return downPosition;
     }
 
     /**
-     * Create reveal animation
+     * Keeps row state keyed by adapter id instead of by position. Only takes effect
+     * when the adapter has stable ids.
      *
-     * @param view      affected view
-     * @param swap      If will change state. If "false" returns to the original position
-     * @param swapRight If swap is true, this parameter tells if movement is toward right or left
-     * @param position  list position
+     * @param enabled True to enable, false otherwise.
      */
-    private void generateRevealAnimate(final View view, final boolean swap, final boolean swapRight, final int position) {
-        int moveTo = 0;
-        if (opened.get(position)) {
-            if (!swap) {
-                moveTo = openedRight.get(position) ? (int) (viewWidth - rightOffset) : (int) (-viewWidth + leftOffset);
-            }
-        } else {
-            if (swap) {
-                moveTo = swapRight ? (int) (viewWidth - rightOffset) : (int) (-viewWidth + leftOffset);
-            }
+    public void setStableIdStateEnabled(boolean enabled) {
+        stableIdStateEnabled = enabled;
+        itemIdCount = 0;
+        if (enabled) {
+            resetItems();
         }
+    }
 
-        animate(view)
-                .translationX(moveTo)
-                .setDuration(animationTime)
-                .setListener(new AnimatorListenerAdapter() {
-                    @Override
+    /**
+     * Persists the choice state in a journal, keyed by adapter id. The current state is
+     * replaced with the one in the journal. Requires an adapter with stable ids.
+     *
+     * @param journal Journal, or null to stop persisting
+     */
+    public void setSelectionJournal(SelectionJournal journal) {
+        selectionJournal = journal;
+        if (journal != null) {
+            checked.clear();
+            checkedCount = 0;
+            pendingChecked = PendingIds.of(journal.getIdRuns());
+            checkedInverted = journal.isInverted();
+            setCheckedTotal(journal.getTotal());
+        }
+    }
+
+    /**
+     * Updates row state after the adapter has been modified
+     */
+    public void resetItems() {
+        ListAdapter adapter = swipeListView.getAdapter();
+        bindGeneration++;
+        if (adapter != null) {
+            int count = adapter.getCount();
+            adapterAllItemsEnabled = adapter.areAllItemsEnabled();
+            policyById.clear();
+            policyByViewType.clear();
+            if (stableIdStateEnabled && adapter.hasStableIds()) {
+                remapItems(adapter, count);
+            } else {
+                itemIdCount = 0;
+                clearFrom(opened, count);
+                clearFrom(openedRight, count);
+                clearFrom(checked, count);
+            }
+            checkedCount = checked.cardinality();
+            pruneBackSnapshots(count);
+            setCheckedTotal(suppliedTotal);
+            if (selectionJournal != null) {
+                selectionJournal.setTotal(checkedTotal);
+            }
+        }
+    }
+
+    /**
+     * Moves row state to the new position of each id, in a single pass over the adapter,
+     * and takes a fresh snapshot of the ids for the next change. Without a previous
+     * snapshot the state is kept by position.
+     *
+     * @param adapter Adapter with stable ids
+     * @param count   Number of rows in the adapter
+     */
+    private void remapItems(ListAdapter adapter, int count) {
+        boolean remap = itemIdCount > 0;
+        long[] openedIds = null;
+        long[] openedRightIds = null;
+        long[] checkedIds = null;
+        if (remap) {
+            openedIds = idsOf(opened);
+            openedRightIds = idsOf(openedRight);
+            checkedIds = idsOf(checked);
+            opened.clear();
+            openedRight.clear();
+            checked.clear();
+        } else {
+            clearFrom(opened, count);
+            clearFrom(openedRight, count);
+            clearFrom(checked, count);
+        }
+
+        if (itemIds.length < count) {
+            itemIds = new long[count];
+        }
+        for (int i = 0; i < count; i++) {
+            long id = adapter.getItemId(i);
+            itemIds[i] = id;
+            if (remap) {
+                if (openedIds.length > 0 && Arrays.binarySearch(openedIds, id) >= 0) {
+                    opened.set(i);
+                }
+                if (openedRightIds.length > 0 && Arrays.binarySearch(openedRightIds, id) >= 0) {
+                    openedRight.set(i);
+                }
+                if (checkedIds.length > 0 && Arrays.binarySearch(checkedIds, id) >= 0) {
+                    checked.set(i);
+                }
+            }
+        }
+        itemIdCount = count;
+    }
+
+    /**
+     * Gets the sorted ids, as of the last snapshot, of the rows whose bit is set
+     *
+     * @param bits Row state
+     * @return Sorted ids
+     */
+    private long[] idsOf(BitSet bits) {
+        long[] ids = new long[bits.cardinality()];
+        int n = 0;
+        for (int i = bits.nextSetBit(0); i >= 0 && i < itemIdCount; i = bits.nextSetBit(i + 1)) {
+            ids[n++] = itemIds[i];
+        }
+        if (n < ids.length) {
+            ids = Arrays.copyOf(ids, n);
+        }
+        Arrays.sort(ids);
+        return ids;
+    }
+
+    /**
+     * Clears every bit from the given index onwards
+     *
+     * @param bits      Row state
+     * @param fromIndex First index to clear
+     */
+    private static void clearFrom(BitSet bits, int fromIndex) {
+        int length = bits.length();
+        if (length > fromIndex) {
+            bits.clear(fromIndex, length);
+        }
+    }
+
+    /**
+     * Gets the container view.
+     *
+     * @return Container view object.
+     */
+    public View getContainerView() {
+        return containerView;
+    }
+
+    /**
+     * Gets the resource ID of the front view.
+     *
+     * @return Front view resource ID.
+     */
+    public int getSwipeFrontView() {
+        return swipeFrontView;
+    }
+
+    /**
+     * Gets the resource ID of the back view.
+     *
+     * @return Back view resource ID.
+     */
+    public int getSwipeBackView() {
+        return swipeBackView;
+    }
+
+    /**
+     * Set the identifier of the view that holds the front view and the back icons and
+     * moves as a whole. 0 moves them one by one.
+     *
+     * @param swipeMovingView View identifier.
+     */
+    public void setSwipeMovingView(int swipeMovingView) {
+        this.swipeMovingView = swipeMovingView;
+        rowHolderGeneration++;
+    }
+
+    /**
+     * Get the identifier of the view that moves as a whole.
+     *
+     * @return View identifier.
+     */
+    public int getSwipeMovingView() {
+        return swipeMovingView;
+    }
+
+    /**
+     * Get the left back icon view identifier.
+     *
+     * @return View identifier.
+     */
+    public int getSwipeBackIconLeft() {
+        return swipeBackIconLeft;
+    }
+
+    /**
+     * Get the right back icon view identifier.
+     *
+     * @return View identifier.
+     */
+    public int getSwipeBackIconRight() {
+        return swipeBackIconRight;
+    }
+
+    /**
+     * Gets the swipe sub-views of a row, resolved once per row view
+     *
+     * @param row Row view
+     * @return Holder with the sub-views
+     */
+    SwipeRowHolder getRowHolder(View row) {
+        return SwipeRowHolder.of(row, this);
+    }
+
+    int getRowHolderGeneration() {
+        return rowHolderGeneration;
+    }
+
+    /**
+     * Moves the rows bound to a new position since the last layout to the resting place of
+     * their state, so a restored or recycled open row draws open and a closed one closed.
+     * An open row that has no back view of its own nor a back snapshot to show is closed
+     * instead.
+     */
+    protected void restBoundRows() {
+        if (viewWidth < 2) {
+            viewWidth = swipeListView.getWidth();
+        }
+        int first = swipeListView.getFirstVisiblePosition();
+        for (int i = 0; i < swipeListView.getChildCount(); i++) {
+            View child = swipeListView.getChildAt(i);
+            SwipeRowHolder holder = getRowHolder(child);
+            int position = first + i;
+            if (holder.front == null || position == downPosition
+                    || (holder.boundPosition == position && holder.boundGeneration == bindGeneration)) {
+                continue;
+            }
+            if (opened.get(position)) {
+                if (holder.isBackStub()) {
+                    holder = SwipeRowHolder.inflateBack(child, this);
+                }
+                if (holder.back != null) {
+                    holder.back.setVisibility(View.VISIBLE);
+                    setAlpha(holder.back, 1f);
+                } else if (backSnapshots.get(backSnapshotKey(position)) == null) {
+                    opened.clear(position);
+                    openedRight.clear(position);
+                }
+            } else if (holder.back != null && !holder.isBackStub()) {
+                holder.back.setVisibility(View.GONE);
+            }
+            setTranslationX(holder.moving != null ? holder.moving : holder.front, restingTranslationFor(position));
+            holder.boundPosition = position;
+            holder.boundGeneration = bindGeneration;
+        }
+    }
+
+    /**
+     * Open item
+     *
+     * @param position Position of list
+     */
+    protected void openAnimate(int position) {
+        View row = swipeListView.getChildAt(position - swipeListView.getFirstVisiblePosition());
+        View front = getRowHolder(row).front;
+        if (sharedBackView != null && !opened.get(position) && sharedBackView.getParent() == null) {
+            takeBackSnapshot(position, row, (ViewGroup) movingViewFor(front).getParent(), false);
+        } else if (sharedBackView == null) {
+            SwipeRowHolder.inflateBack(row, this);
+        }
+        openAnimate(front, position);
+    }
+
+    /**
+     * Close item
+     *
+     * @param position Position of list
+     */
+    protected void closeAnimate(int position) {
+        closeAnimate(getRowHolder(swipeListView.getChildAt(position - swipeListView.getFirstVisiblePosition())).front, position);
+    }
+
+    /**
+     * Unselected choice state in item
+     */
+    protected int dismiss(int position) {
+        int start = swipeListView.getFirstVisiblePosition();
+        int end = swipeListView.getLastVisiblePosition();
+        View view = swipeListView.getChildAt(position - start);
+        ++dismissAnimationRefCount;
+        if (position >= start && position <= end) {
+            performDismiss(view, position, false, true);
+            return view.getHeight();
+        } else {
+            pendingDismisses.add(new PendingDismissData(position, null));
+            return 0;
+        }
+    }
+
+    /**
+     * Get if item is selected
+     *
+     * @param position position in list
+     * @return
+     */
+    protected boolean isChecked(int position) {
+        if (position < 0) {
+            return false;
+        }
+        if (pendingChecked != null) {
+            applyPendingState(position, position);
+        }
+        return checked.get(position) != checkedInverted;
+    }
+
+    /**
+     * Changes the choice state of an item
+     *
+     * @param position position in list
+     * @param value    True to select, false otherwise
+     * @return True if the state changed
+     */
+    protected boolean setChecked(int position, boolean value) {
+        if (pendingChecked != null) {
+            applyPendingState(position, position);
+        }
+        boolean bit = value != checkedInverted;
+        if (checked.get(position) == bit) {
+            return false;
+        }
+        checked.set(position, bit);
+        checkedCount += bit ? 1 : -1;
+        journalChecked(position, position + 1, bit);
+        return true;
+    }
+
+    /**
+     * Changes the choice state of a range of items in one pass
+     *
+     * @param fromPosition first position, inclusive
+     * @param toPosition   last position, exclusive
+     * @param value        True to select, false otherwise
+     */
+    protected void setCheckedRange(int fromPosition, int toPosition, boolean value) {
+        if (fromPosition >= toPosition) {
+            return;
+        }
+        flushPendingState();
+        int inRange = 0;
+        for (int i = checked.nextSetBit(fromPosition); i >= 0 && i < toPosition; i = checked.nextSetBit(i + 1)) {
+            inRange++;
+        }
+        if (value != checkedInverted) {
+            checked.set(fromPosition, toPosition);
+            checkedCount += (toPosition - fromPosition) - inRange;
+        } else {
+            checked.clear(fromPosition, toPosition);
+            checkedCount -= inRange;
+        }
+        journalChecked(fromPosition, toPosition, value != checkedInverted);
+    }
+
+    /**
+     * Selects every item, including the ones the adapter has not loaded yet, without
+     * touching any per row state
+     *
+     * @param totalCount Number of items in the whole data set
+     */
+    protected void checkAll(int totalCount) {
+        pendingChecked = null;
+        checked.clear();
+        checkedCount = 0;
+        checkedInverted = true;
+        setCheckedTotal(totalCount);
+        if (selectionJournal != null) {
+            selectionJournal.clear();
+            selectionJournal.setInverted(true);
+            selectionJournal.setTotal(checkedTotal);
+        }
+    }
+
+    /**
+     * Inverts the choice state of every item in the list
+     */
+    protected void invertChecked() {
+        if (!checkedInverted) {
+            setCheckedTotal(0);
+        }
+        checkedInverted = !checkedInverted;
+        if (selectionJournal != null) {
+            selectionJournal.setInverted(checkedInverted);
+            selectionJournal.setTotal(checkedTotal);
+        }
+    }
+
+    /**
+     * Unselects every item in the list
+     */
+    protected void clearChecked() {
+        pendingChecked = null;
+        checked.clear();
+        checkedCount = 0;
+        checkedInverted = false;
+        if (selectionJournal != null) {
+            selectionJournal.clear();
+            selectionJournal.setInverted(false);
+        }
+    }
+
+    /**
+     * Determines if the selection is held as "every item except some"
+     *
+     * @return True if it is.
+     */
+    protected boolean isCheckedInverted() {
+        return checkedInverted;
+    }
+
+    /**
+     * Count selected
+     *
+     * @return
+     */
+    protected int getCountSelected() {
+        int count = checkedCount + (pendingChecked != null ? pendingChecked.remaining : 0);
+        return checkedInverted ? checkedTotal - count : count;
+    }
+
+    /**
+     * Get positions selected, in ascending order
+     *
+     * @return
+     */
+    protected int[] getSelectedPositions() {
+        flushPendingState();
+        int[] positions = new int[getCountSelected()];
+        int n = 0;
+        for (int i = nextSelectedPosition(0); i >= 0; i = nextSelectedPosition(i + 1)) {
+            positions[n++] = i;
+        }
+        return positions;
+    }
+
+    /**
+     * Get the first position selected at or after the given one
+     *
+     * @param fromPosition position to start from
+     * @return Position, or {@link ListView#INVALID_POSITION} if there are no more
+     */
+    protected int nextSelectedPosition(int fromPosition) {
+        flushPendingState();
+        if (checkedInverted) {
+            int position = checked.nextClearBit(fromPosition);
+            return position < checkedTotal ? position : ListView.INVALID_POSITION;
+        }
+        return checked.nextSetBit(fromPosition);
+    }
+
+    /**
+     * Get positions selected
+     *
+     * @return
+     */
+    protected List<Integer> getPositionsSelected() {
+        flushPendingState();
+        List<Integer> list = new ArrayList<Integer>();
+        for (int i = nextSelectedPosition(0); i >= 0; i = nextSelectedPosition(i + 1)) {
+            list.add(i);
+        }
+        return list;
+    }
+
+    /**
+     * Describes the selection without a per row entry: ranges of positions and, for an
+     * "every item except" selection over an adapter with stable ids, the excluded ids.
+     *
+     * @return Selection
+     */
+    protected SwipeSelection getSelection() {
+        flushPendingState();
+        int[] ranges = runsOf(checked);
+
+        long[] ids = null;
+        ListAdapter adapter = swipeListView.getAdapter();
+        if (checkedInverted && adapter != null && adapter.hasStableIds()) {
+            ids = adapterIdsOf(checked, adapter);
+        }
+        return new SwipeSelection(checkedInverted, getCountSelected(), checkedInverted ? checkedTotal : getAdapterCount(), ranges, ids);
+    }
+
+    /**
+     * Writes a change of the checked bits to the journal, if there is one
+     *
+     * @param fromPosition first position, inclusive
+     * @param toPosition   last position, exclusive
+     * @param bit          New value of the bits
+     */
+    private void journalChecked(int fromPosition, int toPosition, boolean bit) {
+        ListAdapter adapter = swipeListView.getAdapter();
+        if (selectionJournal == null || adapter == null || !adapter.hasStableIds()) {
+            return;
+        }
+        int end = Math.min(toPosition, adapter.getCount());
+        try {
+            for (int i = fromPosition; i < end; i++) {
+                selectionJournal.set(adapter.getItemId(i), bit);
+            }
+        } catch (IOException e) {
+            Log.e(LOG_TAG, "Could not write the selection journal", e);
+        }
+    }
+
+    /**
+     * Sets the provider of per row swipe rules
+     *
+     * @param provider  Provider, or null to ask the list listener on each gesture
+     * @param cacheMode SwipeListView.SWIPE_POLICY_CACHE_BY_ID or SWIPE_POLICY_CACHE_BY_VIEW_TYPE
+     */
+    public void setSwipePolicyProvider(SwipePolicyProvider provider, int cacheMode) {
+        swipePolicyProvider = provider;
+        swipePolicyCacheMode = cacheMode;
+        policyById.clear();
+        policyByViewType.clear();
+    }
+
+    /**
+     * Resolves the swipe mode of a row when a gesture starts on it
+     *
+     * @param position Position of the row
+     * @return Swipe mode
+     */
+    private int resolveSwipeMode(int position) {
+        int mode;
+        if (swipePolicyProvider == null) {
+            mode = swipeListView.changeSwipeMode(position);
+        } else {
+            ListAdapter adapter = swipeListView.getAdapter();
+            if (swipePolicyCacheMode == SwipeListView.SWIPE_POLICY_CACHE_BY_VIEW_TYPE) {
+                int viewType = adapter.getItemViewType(position);
+                mode = policyByViewType.get(viewType, POLICY_UNKNOWN);
+                if (mode == POLICY_UNKNOWN) {
+                    mode = swipePolicyProvider.getSwipeMode(position);
+                    policyByViewType.put(viewType, mode);
+                }
+            } else if (adapter.hasStableIds()) {
+                long id = adapter.getItemId(position);
+                mode = policyById.get(id, POLICY_UNKNOWN);
+                if (mode == POLICY_UNKNOWN) {
+                    mode = swipePolicyProvider.getSwipeMode(position);
+                    policyById.put(id, mode);
+                }
+            } else {
+                mode = swipePolicyProvider.getSwipeMode(position);
+            }
+        }
+        return mode >= 0 ? mode : swipeMode;
+    }
+
+    /**
+     * Finds the child under a point with a binary search over the child tops
+     *
+     * @param x X in list coordinates
+     * @param y Y in list coordinates
+     * @return Child index, or -1 if there is no child there
+     */
+    private int childIndexAt(int x, int y) {
+        int low = 0;
+        int high = swipeListView.getChildCount() - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            View child = swipeListView.getChildAt(mid);
+            if (y < child.getTop()) {
+                high = mid - 1;
+            } else if (y >= child.getBottom()) {
+                low = mid + 1;
+            } else {
+                return x >= child.getLeft() && x < child.getRight() ? mid : -1;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Don't allow swiping on the header or footer, on IGNORE_ITEM_VIEW_TYPE or when
+     * enabled is false on the adapter.
+     *
+     * @param position Position in the list
+     * @return True if the row can be swiped
+     */
+    private boolean isSwipeable(int position) {
+        ListAdapter adapter = swipeListView.getAdapter();
+        if (adapter == null || position < 0 || position >= adapter.getCount()) {
+            return false;
+        }
+        return adapter.getItemViewType(position) >= 0
+                && (adapterAllItemsEnabled || adapter.isEnabled(position));
+    }
+
+    private int getAdapterCount() {
+        return swipeListView.getAdapter() != null ? swipeListView.getAdapter().getCount() : 0;
+    }
+
+    /**
+     * Writes the row state to a saved state. Over an adapter with stable ids the state is
+     * saved as runs of consecutive ids, otherwise as runs of positions.
+     *
+     * @param state Saved state
+     */
+    protected void saveState(SwipeListView.SavedState state) {
+        ListAdapter adapter = swipeListView.getAdapter();
+        if (adapter != null && adapter.hasStableIds()) {
+            state.openedIds = idRunsOf(opened, pendingOpened, adapter);
+            state.openedRightIds = idRunsOf(openedRight, pendingOpenedRight, adapter);
+            state.checkedIds = idRunsOf(checked, pendingChecked, adapter);
+        } else {
+            state.opened = runsOf(opened);
+            state.openedRight = runsOf(openedRight);
+            state.checked = runsOf(checked);
+        }
+        state.checkedInverted = checkedInverted;
+        state.checkedTotal = checkedTotal;
+    }
+
+    /**
+     * Restores the row state from a saved state. State saved by position is applied at
+     * once; state saved by id is kept pending and applied as each row is bound, so the
+     * list is not walked.
+     *
+     * @param state Saved state
+     */
+    protected void restoreState(SwipeListView.SavedState state) {
+        opened.clear();
+        openedRight.clear();
+        checked.clear();
+        setRuns(opened, state.opened);
+        setRuns(openedRight, state.openedRight);
+        pendingOpened = PendingIds.of(state.openedIds);
+        pendingOpenedRight = PendingIds.of(state.openedRightIds);
+        itemIdCount = 0;
+        if (selectionJournal != null) {
+            // The journal is at least as recent as the saved state
+            setSelectionJournal(selectionJournal);
+            return;
+        }
+        setRuns(checked, state.checked);
+        pendingChecked = PendingIds.of(state.checkedIds);
+        checkedCount = checked.cardinality();
+        checkedInverted = state.checkedInverted;
+        setCheckedTotal(state.checkedTotal);
+    }
+
+    /**
+     * Sets the number of items an inverted selection applies to. The adapter count is used
+     * once the adapter holds every item; until then, the larger supplied total is kept.
+     *
+     * @param totalCount Number of items in the whole data set, or 0 if unknown
+     */
+    private void setCheckedTotal(int totalCount) {
+        int count = getAdapterCount();
+        suppliedTotal = totalCount > count ? totalCount : 0;
+        checkedTotal = Math.max(totalCount, count);
+    }
+
+    /**
+     * Applies pending restored state to the rows in the given range of positions
+     *
+     * @param fromPosition first position, inclusive
+     * @param toPosition   last position, inclusive
+     */
+    protected void applyPendingState(int fromPosition, int toPosition) {
+        ListAdapter adapter = swipeListView.getAdapter();
+        if (adapter == null || (pendingOpened == null && pendingOpenedRight == null && pendingChecked == null)) {
+            return;
+        }
+        int end = Math.min(toPosition, adapter.getCount() - 1);
+        for (int i = Math.max(fromPosition, 0); i <= end; i++) {
+            long id = adapter.getItemId(i);
+            if (pendingOpened != null && pendingOpened.take(id)) {
+                opened.set(i);
+            }
+            if (pendingOpenedRight != null && pendingOpenedRight.take(id)) {
+                openedRight.set(i);
+            }
+            if (pendingChecked != null && pendingChecked.take(id) && !checked.get(i)) {
+                checked.set(i);
+                checkedCount++;
+            }
+        }
+        if (pendingOpened != null && pendingOpened.remaining == 0) {
+            pendingOpened = null;
+        }
+        if (pendingOpenedRight != null && pendingOpenedRight.remaining == 0) {
+            pendingOpenedRight = null;
+        }
+        if (pendingChecked != null && pendingChecked.remaining == 0) {
+            pendingChecked = null;
+        }
+    }
+
+    /**
+     * Applies all pending restored state in one pass over the adapter, dropping the ids
+     * that are no longer in it. Needed before operations that walk the whole selection.
+     */
+    private void flushPendingState() {
+        if (pendingOpened != null || pendingOpenedRight != null || pendingChecked != null) {
+            applyPendingState(0, getAdapterCount() - 1);
+            pendingOpened = null;
+            pendingOpenedRight = null;
+            pendingChecked = null;
+            checkedCount = checked.cardinality();
+        }
+    }
+
+    /**
+     * Encodes the set bits as pairs of first position (inclusive) and last position
+     * (exclusive)
+     *
+     * @param bits Row state
+     * @return Runs
+     */
+    static int[] runsOf(BitSet bits) {
+        int runs = 0;
+        for (int i = bits.nextSetBit(0); i >= 0; i = bits.nextSetBit(bits.nextClearBit(i))) {
+            runs++;
+        }
+        int[] ranges = new int[runs * 2];
+        int n = 0;
+        for (int i = bits.nextSetBit(0); i >= 0; i = bits.nextSetBit(i)) {
+            ranges[n++] = i;
+            i = bits.nextClearBit(i);
+            ranges[n++] = i;
+        }
+        return ranges;
+    }
+
+    private static void setRuns(BitSet bits, int[] runs) {
+        if (runs != null) {
+            for (int i = 0; i + 1 < runs.length; i += 2) {
+                bits.set(runs[i], runs[i + 1]);
+            }
+        }
+    }
+
+    /**
+     * Gets the adapter ids of the rows whose bit is set
+     *
+     * @param bits    Row state
+     * @param adapter Adapter with stable ids
+     * @return Ids, in position order
+     */
+    private static long[] adapterIdsOf(BitSet bits, ListAdapter adapter) {
+        int count = adapter.getCount();
+        long[] ids = new long[bits.cardinality()];
+        int n = 0;
+        for (int i = bits.nextSetBit(0); i >= 0 && i < count; i = bits.nextSetBit(i + 1)) {
+            ids[n++] = adapter.getItemId(i);
+        }
+        return n < ids.length ? Arrays.copyOf(ids, n) : ids;
+    }
+
+    /**
+     * Encodes the ids of the rows whose bit is set, plus the still pending ones, as pairs
+     * of first id and number of consecutive ids
+     *
+     * @return Runs, or null if there are no ids
+     */
+    private static long[] idRunsOf(BitSet bits, PendingIds pending, ListAdapter adapter) {
+        long[] ids = adapterIdsOf(bits, adapter);
+        if (pending != null) {
+            long[] pendingIds = pending.remainingIds();
+            long[] all = new long[ids.length + pendingIds.length];
+            System.arraycopy(ids, 0, all, 0, ids.length);
+            System.arraycopy(pendingIds, 0, all, ids.length, pendingIds.length);
+            ids = all;
+        }
+        if (ids.length == 0) {
+            return null;
+        }
+        Arrays.sort(ids);
+        int runs = 1;
+        for (int i = 1; i < ids.length; i++) {
+            if (ids[i] != ids[i - 1] + 1) {
+                runs++;
+            }
+        }
+        long[] idRuns = new long[runs * 2];
+        int n = 0;
+        idRuns[0] = ids[0];
+        idRuns[1] = 1;
+        for (int i = 1; i < ids.length; i++) {
+            if (ids[i] == ids[i - 1] + 1) {
+                idRuns[n + 1]++;
+            } else {
+                n += 2;
+                idRuns[n] = ids[i];
+                idRuns[n + 1] = 1;
+            }
+        }
+        return idRuns;
+    }
+
+    /**
+     * Ids restored from a saved state that have not been matched to a row yet, held as
+     * runs of consecutive ids
+     */
+    static class PendingIds {
+        private final long[] starts;
+        private final int[] offsets;
+        private final int[] lengths;
+        private final BitSet applied = new BitSet();
+        int remaining;
+
+        static PendingIds of(long[] idRuns) {
+            return idRuns == null || idRuns.length < 2 ? null : new PendingIds(idRuns);
+        }
+
+        private PendingIds(long[] idRuns) {
+            int runs = idRuns.length / 2;
+            starts = new long[runs];
+            offsets = new int[runs];
+            lengths = new int[runs];
+            for (int r = 0; r < runs; r++) {
+                starts[r] = idRuns[r * 2];
+                lengths[r] = (int) idRuns[r * 2 + 1];
+                offsets[r] = remaining;
+                remaining += lengths[r];
+            }
+        }
+
+        /**
+         * Marks an id as applied
+         *
+         * @param id Adapter id
+         * @return True if the id was pending
+         */
+        boolean take(long id) {
+            int r = Arrays.binarySearch(starts, id);
+            if (r < 0) {
+                r = -r - 2;
+            }
+            if (r < 0 || id - starts[r] >= lengths[r]) {
+                return false;
+            }
+            int index = offsets[r] + (int) (id - starts[r]);
+            if (applied.get(index)) {
+                return false;
+            }
+            applied.set(index);
+            remaining--;
+            return true;
+        }
+
+        long[] remainingIds() {
+            long[] ids = new long[remaining];
+            int n = 0;
+            for (int r = 0; r < starts.length; r++) {
+                for (int i = 0; i < lengths[r]; i++) {
+                    if (!applied.get(offsets[r] + i)) {
+                        ids[n++] = starts[r] + i;
+                    }
+                }
+            }
+            return ids;
+        }
+    }
+
+    /**
+     * Map from adapter ids to ints, held as sorted parallel arrays so lookups do not box
+     */
+    static class LongIntMap {
+        private long[] keys = new long[8];
+        private int[] values = new int[8];
+        private int size;
+
+        int get(long key, int missing) {
+            int i = Arrays.binarySearch(keys, 0, size, key);
+            return i >= 0 ? values[i] : missing;
+        }
+
+        void put(long key, int value) {
+            int i = Arrays.binarySearch(keys, 0, size, key);
+            if (i >= 0) {
+                values[i] = value;
+                return;
+            }
+            i = -i - 1;
+            if (size == keys.length) {
+                keys = Arrays.copyOf(keys, size * 2);
+                values = Arrays.copyOf(values, size * 2);
+            }
+            System.arraycopy(keys, i, keys, i + 1, size - i);
+            System.arraycopy(values, i, values, i + 1, size - i);
+            keys[i] = key;
+            values[i] = value;
+            size++;
+        }
+
+        int size() {
+            return size;
+        }
+
+        void clear() {
+            size = 0;
+        }
+    }
+
+    /**
+     * Open item
+     *
+     * @param view     affected view
+     * @param position Position of list
+     */
+    private void openAnimate(View view, int position) {
+        if (!opened.get(position)) {
+            generateRevealAnimate(view, true, false, position);
+        }
+    }
+
+    /**
+     * Close item
+     *
+     * @param view     affected view
+     * @param position Position of list
+     */
+    private void closeAnimate(View view, int position) {
+        if (opened.get(position)) {
+            generateRevealAnimate(view, true, false, position);
+        }
+    }
+
+    /**
+     * Create animation
+     *
+     * @param view      affected view
+     * @param swap      If state should change. If "false" returns to the original position
+     * @param swapRight If swap is true, this parameter tells if move is to the right or left
+     * @param position  Position of list
+     */
+    private void generateAnimate(final View view, final boolean swap, final boolean swapRight, final int position) {
+        // Determines the icon to animate alongside the front view.
+        View icon = swapRight ? backIconLeft : backIconRight;
+
+        if (swipingRight || swipingLeft) {
+            if (swipeCurrentAction == SwipeListView.SWIPE_ACTION_REVEAL) {
+                generateRevealAnimate(view, swap, swapRight, position);
+                if (movingView == null) {
+                    animateIconReveal(icon, swapRight);
+                }
+            }
+            if (swipeCurrentAction == SwipeListView.SWIPE_ACTION_DISMISS) {
+                generateDismissAnimate(frontView, swap, swapRight, position);
+                if (movingView == null) {
+                    animateIconDismiss(icon, swapRight);
+                }
+            }
+            if (swipeCurrentAction == SwipeListView.SWIPE_ACTION_CHOICE) {
+                generateChoiceAnimate(view, swap, position);
+            }
+            if (swipeCurrentAction == SwipeListView.SWIPE_ACTION_NONE) {
+                generateNoActionAnimate(view, position);
+            }
+        } else if (swipingLongRight || swipingLongLeft) {
+            if (longSwipeCurrentAction == SwipeListView.LONG_SWIPE_ACTION_REVEAL) {
+                generateRevealAnimate(view, swap, swapRight, position);
+                if (movingView == null) {
+                    animateIconReveal(icon, swapRight);
+                }
+            }
+            if (longSwipeCurrentAction == SwipeListView.LONG_SWIPE_ACTION_DISMISS) {
+                generateDismissAnimate(frontView, swap, swapRight, position);
+                if (movingView == null) {
+                    animateIconDismiss(icon, swapRight);
+                }
+            }
+            if (longSwipeCurrentAction == SwipeListView.SWIPE_ACTION_NONE) {
+                generateNoActionAnimate(view, position);
+            }
+        } else {
+            generateNoActionAnimate(view, position);
+        }
+
+        swipeListView.onMoveEnded(position);
+    }
+
+    /**
+     * Create no action animation
+     *
+     * @param view     affected view
+     * @param position list position
+     */
+    private void generateNoActionAnimate(final View view, final int position) {
+        restoreContainerBackground();
+
+        animate(movingViewFor(view))
+                .translationX(0)
+                .setDuration(animationTime)
+                .setListener(new RowAnimatorListener() {
+                    @Override
+                    public void onAnimationEnd(Animator animation) {
+                        super.onAnimationEnd(animation);
+                        if (backView != null) backView.setVisibility(View.GONE);
+                        resetCell();
+                    }
+                });
+    }
+
+    /**
+     * Create choice animation: toggles the choice state and returns the cell to its place
+     *
+     * @param view     affected view
+     * @param swap     If state should change
+     * @param position list position
+     */
+    private void generateChoiceAnimate(final View view, final boolean swap, final int position) {
+        if (swap) {
+            swapChoiceState(position);
+        }
+        generateNoActionAnimate(view, position);
+    }
+
+    /**
+     * Toggles the choice state of an item and notifies the listeners
+     *
+     * @param position position in list
+     */
+    private void swapChoiceState(int position) {
+        int previousCount = getCountSelected();
+        boolean selected = !isChecked(position);
+        setChecked(position, selected);
+        if (previousCount == 0) {
+            swipeListView.onChoiceStarted();
+        }
+        swipeListView.onChoiceChanged(position, selected);
+        if (getCountSelected() == 0) {
+            swipeListView.onChoiceEnded();
+        }
+    }
+
+    /**
+     * Create dismiss animation
+     *
+     * @param view      affected view
+     * @param swap      If will change state. If is "false" returns to the original position
+     * @param swapRight If swap is true, this parameter tells if move is to the right or left
+     * @param position  Position of list
+     */
+    private void generateDismissAnimate(final View view, final boolean swap, final boolean swapRight, final int position) {
+        animationMoveTo = 0;
+        if (opened.get(position)) {
+            if (!swap) {
+                animationMoveTo = openedRight.get(position) ? (int) (viewWidth - rightOffset) : (int) (-viewWidth + leftOffset);
+            }
+        } else {
+            if (swap) {
+                animationMoveTo = swapRight ? (int) (viewWidth - rightOffset) : (int) (-viewWidth + leftOffset);
+            }
+        }
+
+        restoreContainerBackground();
+
+        final boolean committed = swap && commitsEarly(position) && triggerAction();
+
+        animate(movingViewFor(view))
+                .translationX(animationMoveTo)
+                .setDuration(animationTime)
+                .setListener(new RowAnimatorListener() {
+                    private boolean cancelled;
+
+                    @Override
+                    public void onAnimationCancel(Animator animation) {
+                        cancelled = true;
+                        if (committed) {
+                            swipeListView.onSwipeActionCancelled(position);
+                        }
+                    }
+
+                    @Override
+                    public void onAnimationEnd(Animator animation) {
+                        super.onAnimationEnd(animation);
+                        if (swap && !(committed && cancelled)) {
+                            closeOpenedItems();
+                            performDismiss(frontView, position, true, !committed);
+                            performDismiss(backView, position, true, false);
+                        }
+                        // Otherwise the row is back in place and keeps its state until the next touch.
+                    }
+                });
+
+    }
+
+    private void animateIconDismiss(View view, boolean swapRight) {
+        if (view == null) {
+            return;
+        }
+        int moveTo = swapRight ? (int) (viewWidth - rightOffset) : (int) (-viewWidth + leftOffset);
+
+        animate(view)
+                .translationX(animationMoveTo)
+                .setDuration(animationTime)
+                .setListener(null);
+    }
+
+    /**
+     * Create reveal animation
+     *
+     * @param view      affected view
+     * @param swap      If will change state. If "false" returns to the original position
+     * @param swapRight If swap is true, this parameter tells if movement is toward right or left
+     * @param position  list position
+     */
+    private void generateRevealAnimate(final View view, final boolean swap, final boolean swapRight, final int position) {
+        int moveTo = 0;
+        if (opened.get(position)) {
+            if (!swap) {
+                moveTo = openedRight.get(position) ? (int) (viewWidth - rightOffset) : (int) (-viewWidth + leftOffset);
+            }
+        } else {
+            if (swap) {
+                moveTo = swapRight ? (int) (viewWidth - rightOffset) : (int) (-viewWidth + leftOffset);
+            }
+        }
+
+        final boolean committed = commitsEarly(position) && triggerAction();
+        invalidateSwipeDecorations();
+
+        animate(movingViewFor(view))
+                .translationX(moveTo)
+                .setDuration(animationTime)
+                .setListener(new RowAnimatorListener() {
+                    private boolean cancelled;
+
+                    @Override
+                    public void onAnimationCancel(Animator animation) {
+                        cancelled = true;
+                        if (committed) {
+                            swipeListView.onSwipeActionCancelled(position);
+                        }
+                    }
+
+                    @Override
                     public void onAnimationEnd(Animator animation) {
+                        super.onAnimationEnd(animation);
+                        if (committed && cancelled) {
+                            // The listener rolled the action back already.
+                            resetCell();
+                            return;
+                        }
                         if (swap) {
                             boolean aux = !opened.get(position);
+                            opened.set(position, aux);
                             if (aux) {
+                                openedRight.set(position, swapRight);
                                 swipeListView.onOpened(position, swapRight);
                             } else {
+                                removeBackSnapshot(position);
                                 swipeListView.onClosed(position, openedRight.get(position));
                             }
                         }
-                        triggerAction();
+                        if (!committed) {
+                            triggerAction();
+                        }
                         resetCell();
                     }
                 });
     }
 
+    /**
+     * Listener of the animations that move a row, keeping the running ones so the swipe
+     * decorations are redrawn only while one of them runs
+     */
+    private class RowAnimatorListener extends AnimatorListenerAdapter {
+
+        @Override
+        public void onAnimationStart(Animator animation) {
+            runningRowAnimators.add(animation);
+            invalidateSwipeDecorations();
+        }
+
+        @Override
+        public void onAnimationEnd(Animator animation) {
+            runningRowAnimators.remove(animation);
+            invalidateSwipeDecorations();
+        }
+    }
+
+    /**
+     * Determines if the action of a row animation is reported when it starts: only for the
+     * gesture in progress on that row, and only to a listener that can roll it back
+     *
+     * @param position Position of the animated row
+     * @return True if it is
+     */
+    private boolean commitsEarly(int position) {
+        return earlyActionCommitEnabled && gestureCaptured && position == downPosition
+                && swipeListView.canRollBackSwipeActions();
+    }
+
     private void animateIconReveal(View view, boolean swapRight) {
+        if (view == null) {
+            return;
+        }
         int moveTo = swapRight ? (int) (viewWidth - rightOffset) : (int) (-viewWidth + leftOffset);
 
         animate(view)
@@ -985,15 +2454,50 @@ public class SwipeListViewTouchListener implements View.OnTouchListener {
 
     private void resetCell() {
         if (downPosition != ListView.INVALID_POSITION) {
-            checkbox.setBackgroundResource(frontIconBackground);
+            releaseSwipeLayers();
+            if (sharedBackView != null) {
+                detachSharedBackView();
+            }
+            setBackground(checkbox, frontIconBackground);
             ((TextView) detailText).setTextColor(accentColor);
             containerView = null;
             frontView.setBackgroundColor(Color.TRANSPARENT);
             frontView = null;
+            movingView = null;
             backView = null;
-            backView = null;
+            backIconLeft = null;
+            backIconRight = null;
+            backStubPending = false;
+            sharedBackPending = false;
+            decoratedZone = ZONE_UNSET;
             downPosition = ListView.INVALID_POSITION;
+            invalidateSwipeDecorations();
+        }
+    }
+
+    /**
+     * Abandons the gesture in progress, returning the touched cell to its place
+     */
+    protected void cancelGesture() {
+        if (downPosition == ListView.INVALID_POSITION || frontView == null) {
+            return;
         }
+
+        runSwipeFrame();
+        generateNoActionAnimate(frontView, downPosition);
+        invalidateSwipeDecorations();
+
+        if (swipeListView.getViewPager() != null) {
+            swipeListView.getViewPager().setSwipeable(true);
+        }
+
+        downX = 0;
+        previousRawX = 0;
+        currentSwipeDirection = null;
+        initialSwipeDirection = null;
+        swipeZone = ZONE_UNSET;
+        gestureCaptured = false;
+        recycleVelocityTracker();
     }
 
     /**
@@ -1018,6 +2522,9 @@ public class SwipeListViewTouchListener implements View.OnTouchListener {
 
             @Override
             public void onScrollStateChanged(AbsListView absListView, int scrollState) {
+                if (scrollState != SCROLL_STATE_IDLE) {
+                    finishCollapse();
+                }
                 setEnabled(scrollState != AbsListView.OnScrollListener.SCROLL_STATE_TOUCH_SCROLL);
                 if (swipeClosesAllItemsWhenListMoves && scrollState == SCROLL_STATE_TOUCH_SCROLL) {
                     closeOpenedItems();
@@ -1071,16 +2578,11 @@ public class SwipeListViewTouchListener implements View.OnTouchListener {
      * Close all opened items
      */
     void closeOpenedItems() {
-        if (opened != null) {
-            int start = swipeListView.getFirstVisiblePosition();
-            int end = swipeListView.getLastVisiblePosition();
-            for (int i = start; i <= end; i++) {
-                if (opened.get(i)) {
-                    closeAnimate(swipeListView.getChildAt(i - start).findViewById(swipeFrontView), i);
-                }
-            }
+        int start = swipeListView.getFirstVisiblePosition();
+        int end = swipeListView.getLastVisiblePosition();
+        for (int i = opened.nextSetBit(start); i >= 0 && i <= end; i = opened.nextSetBit(i + 1)) {
+            closeAnimate(getRowHolder(swipeListView.getChildAt(i - start)).front, i);
         }
-
     }
 
     /**
@@ -1109,72 +2611,58 @@ public class SwipeListViewTouchListener implements View.OnTouchListener {
 
                 swipeCurrentAction = SwipeListView.SWIPE_ACTION_NONE;
                 longSwipeCurrentAction = SwipeListView.LONG_SWIPE_ACTION_NONE;
+                swipeZone = ZONE_UNSET;
+                gestureCaptured = false;
+                backStubPending = false;
+                sharedBackPending = false;
+                if (swipePredictor != null) {
+                    swipePredictor.reset();
+                }
 
-                int childCount = swipeListView.getChildCount();
-                int[] listViewCoords = new int[2];
-                swipeListView.getLocationOnScreen(listViewCoords);
-                int x = (int) motionEvent.getRawX() - listViewCoords[0];
-                int y = (int) motionEvent.getRawY() - listViewCoords[1];
-                View child;
-                for (int i = 0; i < childCount; i++) {
-                    child = swipeListView.getChildAt(i);
-                    child.getHitRect(rect);
-
-                    int childPosition = swipeListView.getPositionForView(child);
-
-                    // Don't allow swiping if this is on the header or footer or IGNORE_ITEM_VIEW_TYPE
-                    // or enabled is false on the adapter.
-                    boolean allowSwipe = false;
-                    int count = swipeListView.getAdapter().getCount();
-                    if (count > 0 && childPosition < count) {
-                        allowSwipe = swipeListView.getAdapter().isEnabled(childPosition)
-                                && swipeListView.getAdapter().getItemViewType(childPosition) >= 0;
+                int childIndex = childIndexAt((int) motionEvent.getX(), (int) motionEvent.getY());
+                int childPosition = swipeListView.getFirstVisiblePosition() + childIndex;
+                if (childIndex >= 0 && isSwipeable(childPosition)) {
+                    View child = swipeListView.getChildAt(childIndex);
+                    SwipeRowHolder holder = getRowHolder(child);
+                    setParentView(child);
+                    setFrontView(holder.front);
+                    movingView = holder.moving;
+                    setContainerView((View) frontView.getParent());
+
+                    downX = motionEvent.getRawX();
+                    downPosition = childPosition;
+                    downSwipeMode = resolveSwipeMode(childPosition);
+
+                    hitX = (int) motionEvent.getRawX();
+                    hitY = (int) motionEvent.getRawY();
+
+                    if (sharedBackView != null) {
+                        // Attached once the swipe crosses the touch slop.
+                        sharedBackPending = true;
+                    } else if (holder.isBackStub()) {
+                        // Inflated once the swipe crosses the touch slop.
+                        backStubPending = true;
+                    } else {
+                        setBackView(holder.back);
+                        setBackIconLeft(holder.backIconLeft);
+                        setBackIconRight(holder.backIconRight);
                     }
+                    setCheckbox(holder.frontIcon);
+                    setNumber(holder.number);
+                    setDetailText(holder.detailText);
+                    setLabel(holder.label);
 
-                    if (allowSwipe && rect.contains(x, y)) {
-                        setParentView(child);
-                        setFrontView(child.findViewById(swipeFrontView));
-                        setContainerView((View) frontView.getParent());
-
-                        downX = motionEvent.getRawX();
-                        downPosition = childPosition;
-
-                        hitX = (int) motionEvent.getRawX();
-                        hitY = (int) motionEvent.getRawY();
-
-                        if (swipeBackView > 0) {
-                            setBackView(child.findViewById(swipeBackView));
-                        }
-
-                        if (swipeBackIconLeft > 0) {
-                            setBackIconLeft(child.findViewById(swipeBackIconLeft));
-                        }
-
-                        if (swipeBackIconRight > 0) {
-                            setBackIconRight(child.findViewById(swipeBackIconRight));
-                        }
-
-                        if (swipeFrontIcon > 0) {
-                            setCheckbox(child.findViewById(swipeFrontIcon));
-                        }
-
-                        if (swipeFrontNumber > 0) {
-                            setNumber(child.findViewById(swipeFrontNumber));
-                        }
-
-                        if (swipeFrontDetailText > 0) {
-                            setDetailText(child.findViewById(swipeFrontDetailText));
-                        }
-
-                        if (swipeFrontLabel > 0) {
-                            setLabel(child.findViewById(swipeFrontLabel));
-                        }
+                    if (swipeListView.getViewPager() != null) {
+                        swipeListView.getViewPager().setSwipeable(false);
+                    }
 
-                        if (swipeListView.getViewPager() != null) {
-                            swipeListView.getViewPager().setSwipeable(false);
+                    if (flingVelocityThreshold > 0) {
+                        if (velocityTracker == null) {
+                            velocityTracker = VelocityTracker.obtain();
+                        } else {
+                            velocityTracker.clear();
                         }
-
-                        break;
+                        velocityTracker.addMovement(motionEvent);
                     }
                 }
                 view.onTouchEvent(motionEvent);
@@ -1186,6 +2674,8 @@ public class SwipeListViewTouchListener implements View.OnTouchListener {
                     break;
                 }
 
+                runSwipeFrame();
+
                 if (!swipeListView.isSwiping()) {
                     // Detect single tap.
                     if (!((DynamicListView) view).isScrollingY()) {
@@ -1213,17 +2703,24 @@ public class SwipeListViewTouchListener implements View.OnTouchListener {
                 } else if (Math.abs(deltaX) > swipeThreshold) {
                     swap = true;
                     swapRight = deltaX > 0;
+                } else if (isFling(motionEvent, deltaX)) {
+                    swap = true;
+                    swapRight = deltaX > 0;
+                    if (!opened.get(downPosition)) {
+                        swipeCurrentAction = swipeActionFor(swapRight ? swipeActionRight : swipeActionLeft);
+                    }
                 } else if (swipingRight && swipeActionLeft != swipeActionRight) {
                     swap = false;
                 } else if (opened.get(downPosition) && !openedRight.get(downPosition)) {
                     swap = false;
-                } else if (swipeMode == SwipeListView.SWIPE_MODE_LEFT && deltaX > swipeThreshold) {
+                } else if (downSwipeMode == SwipeListView.SWIPE_MODE_LEFT && deltaX > swipeThreshold) {
                     swap = false;
-                } else if (swipeMode == SwipeListView.SWIPE_MODE_RIGHT && deltaX < swipeThreshold) {
+                } else if (downSwipeMode == SwipeListView.SWIPE_MODE_RIGHT && deltaX < swipeThreshold) {
                     swap = false;
                 }
 
                 generateAnimate(frontView, swap, swapRight, downPosition);
+                invalidateSwipeDecorations();
 
                 if (swipeListView.getViewPager() != null) {
                     swipeListView.getViewPager().setSwipeable(true);
@@ -1234,16 +2731,23 @@ public class SwipeListViewTouchListener implements View.OnTouchListener {
                 previousRawX = 0;
                 currentSwipeDirection = null;
                 initialSwipeDirection = null;
+                swipeZone = ZONE_UNSET;
+                gestureCaptured = false;
+                recycleVelocityTracker();
 
                 break;
             }
 
             case MotionEvent.ACTION_MOVE: {
-                if (paused || downPosition == ListView.INVALID_POSITION || areViewsNull() ||
+                if (paused || downPosition == ListView.INVALID_POSITION || !hasSwipeViews() ||
                         ((DynamicListView) view).hasPerformedLongPress() || ((DynamicListView) view).isScrollingY()) {
                     break;
                 }
 
+                if (velocityTracker != null) {
+                    velocityTracker.addMovement(motionEvent);
+                }
+
                 float rawX = motionEvent.getRawX();
                 if (previousRawX == 0) previousRawX = rawX;
                 float deltaX = rawX - downX;
@@ -1253,11 +2757,7 @@ public class SwipeListViewTouchListener implements View.OnTouchListener {
 
                 // Only process swipe changes when touch has moved far enough.
                 if (Math.abs(histDeltaX) > minSwipeThreshold) {
-                    int swipeMode = this.swipeMode;
-                    int changeSwipeMode = swipeListView.changeSwipeMode(downPosition);
-                    if (changeSwipeMode >= 0) {
-                        swipeMode = changeSwipeMode;
-                    }
+                    int swipeMode = downSwipeMode;
 
                     if (swipeMode == SwipeListView.SWIPE_MODE_NONE && !longSwipeEnabled) {
                         deltaMode = 0;
@@ -1277,10 +2777,6 @@ public class SwipeListViewTouchListener implements View.OnTouchListener {
                         }
                     }
 
-                    // Reset current actions.
-                    swipeCurrentAction = SwipeListView.SWIPE_ACTION_NONE;
-                    longSwipeCurrentAction = SwipeListView.LONG_SWIPE_ACTION_NONE;
-
                     if (longSwipeEnabled) {
                         swipingRight = deltaX > 0 && deltaX < longSwipeThreshold;
                         swipingLeft = deltaX < 0 && deltaX > -longSwipeThreshold;
@@ -1297,125 +2793,6 @@ public class SwipeListViewTouchListener implements View.OnTouchListener {
                         swipingLongLeft = deltaX < -longSwipeThreshold;
                     }
 
-                    boolean validSwipe = deltaX > swipeThreshold || deltaX < -swipeThreshold;
-
-                    if (validSwipe) {
-                        // Animate alpha of back view.
-                        backView.animate().alpha(1f).setDuration(200);
-
-                        // Fade in back icons.
-                        backIconLeft.animate().alpha(1f).setDuration(200);
-                        backIconRight.animate().alpha(1f).setDuration(200);
-                    } else {
-                        // Optimize overdraw by painting only one view.
-                        frontView.setBackgroundColor(containerColor);
-//                        containerView.setBackgroundResource(0);
-
-                        // Set back view initial alpha.
-                        backView.setAlpha(0.2f);
-                        backView.setVisibility(View.VISIBLE);
-
-                        // Fade out back icons.
-                        backIconLeft.animate().alpha(0f).setDuration(200);
-                        backIconRight.animate().alpha(0f).setDuration(200);
-                    }
-
-                    // Changes colors and actions based on swipe direction and length.
-                    if (swipingRight && swipeEnabledForDirection(SwipeDirections.RIGHT)) {
-                        backView.setBackgroundColor(rightBackgroundColor);
-
-                        if (validSwipe) {
-                            checkbox.setBackgroundResource(frontIconRightBackground);
-                            ((TextView) backIconLeft).setText(context.getString(backIconRightText));
-                            ((TextView) detailText).setTextColor(rightBackgroundColor);
-                            //label.setBackgroundResource(frontLabelRightBackground);
-
-                            if (swipeActionRight == SwipeListView.SWIPE_ACTION_DISMISS) {
-                                swipeCurrentAction = SwipeListView.SWIPE_ACTION_DISMISS;
-                            } else if (swipeActionRight == SwipeListView.SWIPE_ACTION_REVEAL) {
-                                swipeCurrentAction = SwipeListView.SWIPE_ACTION_REVEAL;
-                            }
-                        }
-                    } else if (swipingLeft && swipeEnabledForDirection(SwipeDirections.LEFT)) {
-                        backView.setBackgroundColor(leftBackgroundColor);
-
-                        if (validSwipe) {
-                            checkbox.setBackgroundResource(frontIconLeftBackground);
-                            ((TextView) backIconRight).setText(context.getString(backIconLeftText));
-                            ((TextView) detailText).setTextColor(leftBackgroundColor);
-                            //label.setBackgroundResource(frontLabelLeftBackground);
-
-                            if (swipeActionLeft == SwipeListView.SWIPE_ACTION_DISMISS) {
-                                swipeCurrentAction = SwipeListView.SWIPE_ACTION_DISMISS;
-                            } else if (swipeActionLeft == SwipeListView.SWIPE_ACTION_REVEAL) {
-                                swipeCurrentAction = SwipeListView.SWIPE_ACTION_REVEAL;
-                            }
-                        }
-                    } else if (swipingLongRight) {
-                        if (longSwipeEnabledForDirection(SwipeDirections.RIGHT)) {
-                            backView.setBackgroundColor(longRightBackgroundColor);
-
-                            if (validSwipe) {
-                                checkbox.setBackgroundResource(frontIconLongRightBackground);
-                                ((TextView) backIconLeft).setText(context.getString(backIconLongRightText));
-                                ((TextView) detailText).setTextColor(longRightBackgroundColor);
-                                //label.setBackgroundResource(frontLabelLongRightBackground);
-                            }
-                        } else {
-                            backView.setBackgroundColor(rightBackgroundColor);
-
-                            if (validSwipe) {
-                                checkbox.setBackgroundResource(frontIconRightBackground);
-                                ((TextView) backIconLeft).setText(context.getString(backIconRightText));
-                                ((TextView) detailText).setTextColor(rightBackgroundColor);
-                                //label.setBackgroundResource(frontLabelRightBackground);
-                            }
-                        }
-
-                        if (validSwipe) {
-                            if (longSwipeActionRight == SwipeListView.LONG_SWIPE_ACTION_DISMISS) {
-                                longSwipeCurrentAction = SwipeListView.LONG_SWIPE_ACTION_DISMISS;
-                            } else if (longSwipeActionRight == SwipeListView.LONG_SWIPE_ACTION_REVEAL) {
-                                longSwipeCurrentAction = SwipeListView.SWIPE_ACTION_REVEAL;
-                            }
-                        }
-                    } else if (swipingLongLeft) {
-                        if (longSwipeEnabledForDirection(SwipeDirections.LEFT)) {
-                            backView.setBackgroundColor(longLeftBackgroundColor);
-
-                            if (validSwipe) {
-                                checkbox.setBackgroundResource(frontIconLongLeftBackground);
-                                ((TextView) backIconRight).setText(context.getString(backIconLongLeftText));
-                                ((TextView) detailText).setTextColor(longLeftBackgroundColor);
-                                //label.setBackgroundResource(frontLabelLongLeftBackground);
-                            }
-                        } else {
-                            backView.setBackgroundColor(leftBackgroundColor);
-
-                            if (validSwipe) {
-                                checkbox.setBackgroundResource(frontIconLeftBackground);
-                                ((TextView) backIconRight).setText(context.getString(backIconLeftText));
-                                ((TextView) detailText).setTextColor(leftBackgroundColor);
-                                //label.setBackgroundResource(frontLabelLeftBackground);
-                            }
-                        }
-
-                        if (validSwipe) {
-                            if (longSwipeActionLeft == SwipeListView.LONG_SWIPE_ACTION_DISMISS) {
-                                longSwipeCurrentAction = SwipeListView.LONG_SWIPE_ACTION_DISMISS;
-                            } else if (longSwipeActionLeft == SwipeListView.LONG_SWIPE_ACTION_REVEAL) {
-                                longSwipeCurrentAction = SwipeListView.SWIPE_ACTION_REVEAL;
-                            }
-                        }
-                    } else {
-                        // Nothing happened. Reset views.
-                        backView.setVisibility(View.GONE);
-                        frontView.setBackgroundColor(Color.TRANSPARENT);
-                        containerView.setBackgroundResource(containerBackground);
-                    }
-
-                    swipeListView.onStartOpen(downPosition, swipeCurrentAction, swipingRight);
-
                     if (previousRawX > 0) {
                         if (histDeltaX > 0) {
                             currentSwipeDirection = SwipeDirections.RIGHT;
@@ -1426,31 +2803,47 @@ public class SwipeListViewTouchListener implements View.OnTouchListener {
                         if (initialSwipeDirection == null) {
                             initialSwipeDirection = currentSwipeDirection;
                         }
+                    }
 
-                        // Changes back view based on swipe direction change (i.e. "regret").
-                        if (didRegretSwipe()) {
-                            backView.animate().alpha(0.2f).setDuration(200);
-                            checkbox.setBackgroundResource(frontIconBackground);
-                            ((TextView) detailText).setTextColor(accentColor);
-                            //label.setBackgroundResource(frontLabelBackground);
-                            swipeCurrentAction = SwipeListView.SWIPE_ACTION_NONE;
-                            longSwipeCurrentAction = SwipeListView.LONG_SWIPE_ACTION_NONE;
-                        }
+                    int zone = swipeZoneFor(deltaX > swipeThreshold || deltaX < -swipeThreshold);
+                    setSwipeActions(zone);
+                    if (frameSyncEnabled) {
+                        pendingZone = zone;
+                        scheduleSwipeFrame();
+                    } else {
+                        updateSwipeZone(zone);
                     }
 
                     if (deltaMode > slop) {
-                        swipeListView.onMove(downPosition);
-
                         if (opened.get(downPosition)) {
-                            swipeListView.onStartClose(downPosition, swipingRight);
                             swipeCurrentAction = SwipeListView.SWIPE_ACTION_REVEAL;
                         }
 
-                        swipeListView.requestDisallowInterceptTouchEvent(true);
-                        MotionEvent cancelEvent = MotionEvent.obtain(motionEvent);
-                        cancelEvent.setAction(MotionEvent.ACTION_CANCEL |
-                                (MotionEventCompat.getActionIndex(motionEvent) << MotionEventCompat.ACTION_POINTER_INDEX_SHIFT));
-                        swipeListView.onTouchEvent(cancelEvent);
+                        // The list only needs to hear once per gesture that the swipe took over.
+                        if (!gestureCaptured) {
+                            gestureCaptured = true;
+                            if (backStubPending) {
+                                inflateBackStub();
+                            } else if (sharedBackPending) {
+                                attachSharedBackView();
+                            }
+                            swipeListView.onMove(downPosition);
+
+                            if (swipeLayersEnabled) {
+                                promoteSwipeLayers();
+                            }
+
+                            if (opened.get(downPosition)) {
+                                swipeListView.onStartClose(downPosition, swipingRight);
+                            }
+
+                            swipeListView.requestDisallowInterceptTouchEvent(true);
+                            MotionEvent cancelEvent = MotionEvent.obtain(motionEvent);
+                            cancelEvent.setAction(MotionEvent.ACTION_CANCEL |
+                                    (MotionEventCompat.getActionIndex(motionEvent) << MotionEventCompat.ACTION_POINTER_INDEX_SHIFT));
+                            swipeListView.onTouchEvent(cancelEvent);
+                            cancelEvent.recycle();
+                        }
                     }
 
                     previousRawX = motionEvent.getRawX();
@@ -1460,7 +2853,17 @@ public class SwipeListViewTouchListener implements View.OnTouchListener {
                     if (opened.get(downPosition)) {
                         deltaX += openedRight.get(downPosition) ? viewWidth - rightOffset : -viewWidth + leftOffset;
                     }
-                    move(deltaX);
+                    if (swipePredictor != null) {
+                        swipePredictor.addSample(motionEvent.getEventTime(), deltaX);
+                        deltaX = swipePredictor.predict(-viewWidth, viewWidth);
+                    }
+                    if (frameSyncEnabled) {
+                        pendingDeltaX = deltaX;
+                        hasPendingMove = true;
+                        scheduleSwipeFrame();
+                    } else {
+                        move(deltaX);
+                    }
                     return true;
                 }
                 break;
@@ -1469,15 +2872,405 @@ public class SwipeListViewTouchListener implements View.OnTouchListener {
         return false;
     }
 
+    /**
+     * Determines if the gesture ended with a fling fast enough to change the state of the
+     * row even though it did not reach the swipe threshold
+     *
+     * @param motionEvent Up event
+     * @param deltaX      Horizontal distance of the gesture
+     * @return True if it did
+     */
+    private boolean isFling(MotionEvent motionEvent, float deltaX) {
+        if (velocityTracker == null || !gestureCaptured || !(swipingRight || swipingLeft)) {
+            return false;
+        }
+        velocityTracker.addMovement(motionEvent);
+        velocityTracker.computeCurrentVelocity(1000, maxFlingVelocity);
+        boolean directionEnabled = deltaX > 0 ? swipingRight && swipeEnabledForDirection(SwipeDirections.RIGHT)
+                : swipingLeft && swipeEnabledForDirection(SwipeDirections.LEFT);
+        return isFlingSwap(velocityTracker.getXVelocity(), deltaX, flingVelocityThreshold,
+                opened.get(downPosition), openedRight.get(downPosition), directionEnabled);
+    }
+
+    /**
+     * Decides if a fling changes the state of a row: a closed row opens, or is dismissed,
+     * when flung towards an enabled direction, and an open row closes when flung back
+     * towards its closed place
+     *
+     * @param velocityX         Horizontal velocity at the end of the gesture
+     * @param deltaX            Horizontal distance of the gesture
+     * @param velocityThreshold Minimum velocity of a fling
+     * @param open              True if the row is open
+     * @param openRight         True if the row is open to the right
+     * @param directionEnabled  True if swiping a closed row towards deltaX is enabled
+     * @return True if the row changes state
+     */
+    static boolean isFlingSwap(float velocityX, float deltaX, float velocityThreshold, boolean open,
+                               boolean openRight, boolean directionEnabled) {
+        if (deltaX == 0 || Math.abs(velocityX) < velocityThreshold || (velocityX > 0) != (deltaX > 0)) {
+            return false;
+        }
+        if (open) {
+            return openRight ? deltaX < 0 : deltaX > 0;
+        }
+        return directionEnabled;
+    }
+
+    private void recycleVelocityTracker() {
+        if (velocityTracker != null) {
+            velocityTracker.recycle();
+            velocityTracker = null;
+        }
+    }
+
+    /**
+     * Sets a cached background drawable on a view
+     *
+     * @param view  View
+     * @param state Constant state of the drawable, or null to remove the background
+     */
+    @SuppressWarnings("deprecation")
+    private void setBackground(View view, Drawable.ConstantState state) {
+        view.setBackgroundDrawable(resourceCache.newDrawable(state, view.getContext().getTheme()));
+    }
+
+    /**
+     * Puts the moving content of the current cell on a hardware layer for the rest of the
+     * gesture, and lets the back content fade without an offscreen buffer
+     */
+    private void promoteSwipeLayers() {
+        layeredView = movingView != null ? movingView : frontView;
+        layeredView.setLayerType(View.LAYER_TYPE_HARDWARE, null);
+        if (areViewsNull()) {
+            return;
+        }
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.N) {
+            forceNonOverlapping(0, backView);
+            forceNonOverlapping(1, backIconLeft);
+            forceNonOverlapping(2, backIconRight);
+        } else {
+            // Without forceHasOverlappingRendering, the back view fades as a whole from a
+            // layer rendered once per zone, instead of from an offscreen buffer every frame.
+            layeredBackView = backView;
+            layeredBackView.setLayerType(View.LAYER_TYPE_HARDWARE, null);
+        }
+    }
+
+    private void forceNonOverlapping(int index, View view) {
+        nonOverlappingViews[index] = view;
+        overlappingRendering[index] = view.hasOverlappingRendering();
+        view.forceHasOverlappingRendering(false);
+    }
+
+    /**
+     * Takes the current cell out of the layered mode: removes its layers, gives the back
+     * content back its own overlapping rendering and draws the container background again
+     */
+    private void releaseSwipeLayers() {
+        if (layeredView != null) {
+            layeredView.setLayerType(View.LAYER_TYPE_NONE, null);
+            layeredView = null;
+        }
+        if (layeredBackView != null) {
+            layeredBackView.setLayerType(View.LAYER_TYPE_NONE, null);
+            layeredBackView = null;
+        }
+        for (int i = 0; i < nonOverlappingViews.length; i++) {
+            if (nonOverlappingViews[i] != null) {
+                nonOverlappingViews[i].forceHasOverlappingRendering(overlappingRendering[i]);
+                nonOverlappingViews[i] = null;
+            }
+        }
+        restoreContainerBackground();
+    }
+
+    private void restoreContainerBackground() {
+        if (backgroundState.release() && containerView != null) {
+            setBackground(containerView, containerBackground);
+        }
+    }
+
+    /**
+     * Determines if the back view of the current cell has an opaque background, so it hides
+     * the container background once faded in
+     *
+     * @return True if it does
+     */
+    private boolean isBackOpaque() {
+        Drawable background = backView != null ? backView.getBackground() : null;
+        return background != null && background.getOpacity() == PixelFormat.OPAQUE;
+    }
+
+    /**
+     * Gets the zone of the current swipe, from the swipe direction and length
+     *
+     * @param validSwipe True if the swipe is past the swipe threshold
+     * @return Zone, with {@link #ZONE_REGRET} set if the swipe changed direction
+     */
+    private int swipeZoneFor(boolean validSwipe) {
+        int zone;
+        if (swipingRight && swipeEnabledForDirection(SwipeDirections.RIGHT)) {
+            zone = validSwipe ? ZONE_SHORT_RIGHT : ZONE_NEAR_RIGHT;
+        } else if (swipingLeft && swipeEnabledForDirection(SwipeDirections.LEFT)) {
+            zone = validSwipe ? ZONE_SHORT_LEFT : ZONE_NEAR_LEFT;
+        } else if (swipingLongRight) {
+            if (!validSwipe) {
+                zone = ZONE_NEAR_RIGHT;
+            } else {
+                zone = longSwipeEnabledForDirection(SwipeDirections.RIGHT) ? ZONE_LONG_RIGHT : ZONE_SHORT_RIGHT;
+            }
+        } else if (swipingLongLeft) {
+            if (!validSwipe) {
+                zone = ZONE_NEAR_LEFT;
+            } else {
+                zone = longSwipeEnabledForDirection(SwipeDirections.LEFT) ? ZONE_LONG_LEFT : ZONE_SHORT_LEFT;
+            }
+        } else {
+            zone = ZONE_NONE;
+        }
+        if (initialSwipeDirection != null && didRegretSwipe()) {
+            zone |= ZONE_REGRET;
+        }
+        return zone;
+    }
+
+    /**
+     * Sets the current actions for a swipe zone
+     *
+     * @param zone Swipe zone
+     */
+    private void setSwipeActions(int zone) {
+        swipeCurrentAction = SwipeListView.SWIPE_ACTION_NONE;
+        longSwipeCurrentAction = SwipeListView.LONG_SWIPE_ACTION_NONE;
+        if ((zone & ZONE_REGRET) != 0) {
+            return;
+        }
+        switch (zone) {
+            case ZONE_SHORT_RIGHT:
+                swipeCurrentAction = swipeActionFor(swipeActionRight);
+                break;
+            case ZONE_SHORT_LEFT:
+                swipeCurrentAction = swipeActionFor(swipeActionLeft);
+                break;
+            case ZONE_LONG_RIGHT:
+                longSwipeCurrentAction = longSwipeActionFor(longSwipeActionRight);
+                break;
+            case ZONE_LONG_LEFT:
+                longSwipeCurrentAction = longSwipeActionFor(longSwipeActionLeft);
+                break;
+        }
+    }
+
+    private static int swipeActionFor(int swipeAction) {
+        if (swipeAction == SwipeListView.SWIPE_ACTION_DISMISS
+                || swipeAction == SwipeListView.SWIPE_ACTION_REVEAL
+                || swipeAction == SwipeListView.SWIPE_ACTION_CHOICE) {
+            return swipeAction;
+        }
+        return SwipeListView.SWIPE_ACTION_NONE;
+    }
+
+    private static int longSwipeActionFor(int longSwipeAction) {
+        if (longSwipeAction == SwipeListView.LONG_SWIPE_ACTION_DISMISS) {
+            return SwipeListView.LONG_SWIPE_ACTION_DISMISS;
+        } else if (longSwipeAction == SwipeListView.LONG_SWIPE_ACTION_REVEAL) {
+            return SwipeListView.SWIPE_ACTION_REVEAL;
+        }
+        return SwipeListView.LONG_SWIPE_ACTION_NONE;
+    }
+
+    /**
+     * Updates backgrounds, texts and fades of the current cell when the swipe enters a
+     * new zone
+     *
+     * @param zone Swipe zone
+     */
+    private void applySwipeZone(int zone) {
+        int baseZone = zone & ~ZONE_REGRET;
+        boolean validSwipe = baseZone >= ZONE_SHORT_RIGHT;
+        boolean hasBackViews = !areViewsNull();
+        decoratedZone = zone;
+
+        if (validSwipe) {
+
+            if (hasBackViews) {
+                // Animate alpha of back view. Once opaque, it hides the container background.
+                animate(backView).alpha(1f).setDuration(200).setListener(backFadeListener);
+
+                // Fade in back icons.
+                backIconLeft.animate().alpha(1f).setDuration(200);
+                backIconRight.animate().alpha(1f).setDuration(200);
+            }
+        } else {
+            // Optimize overdraw by painting only one view.
+            frontView.setBackgroundColor(containerColor);
+
+            if (hasBackViews) {
+                // Set back view initial alpha.
+                backView.setAlpha(0.2f);
+                backView.setVisibility(View.VISIBLE);
+
+                // Fade out back icons.
+                backIconLeft.animate().alpha(0f).setDuration(200);
+                backIconRight.animate().alpha(0f).setDuration(200);
+            }
+        }
+
+        // Changes colors based on swipe direction and length.
+        switch (baseZone) {
+            case ZONE_NEAR_RIGHT:
+                if (hasBackViews) {
+                    backView.setBackgroundColor(rightBackgroundColor);
+                }
+                break;
+            case ZONE_NEAR_LEFT:
+                if (hasBackViews) {
+                    backView.setBackgroundColor(leftBackgroundColor);
+                }
+                break;
+            case ZONE_SHORT_RIGHT:
+                if (hasBackViews) {
+                    backView.setBackgroundColor(rightBackgroundColor);
+                    ((TextView) backIconLeft).setText(backIconRightText);
+                }
+                setBackground(checkbox, frontIconRightBackground);
+                ((TextView) detailText).setTextColor(rightBackgroundColor);
+                break;
+            case ZONE_SHORT_LEFT:
+                if (hasBackViews) {
+                    backView.setBackgroundColor(leftBackgroundColor);
+                    ((TextView) backIconRight).setText(backIconLeftText);
+                }
+                setBackground(checkbox, frontIconLeftBackground);
+                ((TextView) detailText).setTextColor(leftBackgroundColor);
+                break;
+            case ZONE_LONG_RIGHT:
+                if (hasBackViews) {
+                    backView.setBackgroundColor(longRightBackgroundColor);
+                    ((TextView) backIconLeft).setText(backIconLongRightText);
+                }
+                setBackground(checkbox, frontIconLongRightBackground);
+                ((TextView) detailText).setTextColor(longRightBackgroundColor);
+                break;
+            case ZONE_LONG_LEFT:
+                if (hasBackViews) {
+                    backView.setBackgroundColor(longLeftBackgroundColor);
+                    ((TextView) backIconRight).setText(backIconLongLeftText);
+                }
+                setBackground(checkbox, frontIconLongLeftBackground);
+                ((TextView) detailText).setTextColor(longLeftBackgroundColor);
+                break;
+            default:
+                // Nothing happened. Reset views.
+                if (hasBackViews) {
+                    backView.setVisibility(View.GONE);
+                }
+                frontView.setBackgroundColor(Color.TRANSPARENT);
+                break;
+        }
+
+        // Changes back view based on swipe direction change (i.e. "regret").
+        if ((zone & ZONE_REGRET) != 0) {
+            if (hasBackViews) {
+                backView.animate().alpha(0.2f).setDuration(200);
+            }
+            setBackground(checkbox, frontIconBackground);
+            ((TextView) detailText).setTextColor(accentColor);
+        }
+
+        if (backgroundState.enterZone(zone, hasBackViews && isBackOpaque()) && containerView != null) {
+            setBackground(containerView, containerBackground);
+        }
+    }
+
+    /**
+     * Updates the cell views when the swipe crosses into another zone
+     *
+     * @param zone Swipe zone
+     */
+    private void updateSwipeZone(int zone) {
+        if (zone != swipeZone) {
+            swipeZone = zone;
+            applySwipeZone(zone);
+            swipeListView.onStartOpen(downPosition, swipeCurrentAction, swipingRight);
+        }
+    }
+
+    private void scheduleSwipeFrame() {
+        if (!swipeFrameScheduled) {
+            swipeFrameScheduled = true;
+            ViewCompat.postOnAnimation(swipeListView, swipeFrame);
+        }
+    }
+
+    /**
+     * Applies the latest zone and translation recorded by the touch events right away
+     */
+    private void runSwipeFrame() {
+        if (swipeFrameScheduled) {
+            swipeListView.removeCallbacks(swipeFrame);
+            swipeFrame.run();
+        }
+    }
+
+    /**
+     * Applies, once per frame, the latest zone and translation recorded by the touch
+     * events of the frame
+     */
+    private final Runnable swipeFrame = new Runnable() {
+        @Override
+        public void run() {
+            swipeFrameScheduled = false;
+            if (downPosition == ListView.INVALID_POSITION || !hasSwipeViews()) {
+                pendingZone = ZONE_UNSET;
+                hasPendingMove = false;
+                return;
+            }
+            if (pendingZone != ZONE_UNSET) {
+                updateSwipeZone(pendingZone);
+                pendingZone = ZONE_UNSET;
+            }
+            if (hasPendingMove) {
+                hasPendingMove = false;
+                move(pendingDeltaX);
+            }
+        }
+    };
+
     /**
      * Moves the view
      *
      * @param deltaX delta
      */
     public void move(float deltaX) {
-        setTranslationX(frontView, deltaX);
-        setTranslationX(backIconLeft, deltaX);
-        setTranslationX(backIconRight, deltaX);
+        if (movingView != null) {
+            setTranslationX(movingView, deltaX);
+        } else {
+            setTranslationX(frontView, deltaX);
+            if (!areViewsNull()) {
+                setTranslationX(backIconLeft, deltaX);
+                setTranslationX(backIconRight, deltaX);
+            }
+        }
+        invalidateSwipeDecorations();
+    }
+
+    /**
+     * Gets the view to translate to move a front view: the moving container around it
+     * if there is one, or the front view itself
+     *
+     * @param front Front view
+     * @return View to translate
+     */
+    private View movingViewFor(View front) {
+        if (swipeMovingView > 0) {
+            for (View v = front; v != null && v != swipeListView; v = v.getParent() instanceof View ? (View) v.getParent() : null) {
+                if (v.getId() == swipeMovingView) {
+                    return v;
+                }
+            }
+        }
+        return front;
     }
 
     /**
@@ -1506,6 +3299,10 @@ public class SwipeListViewTouchListener implements View.OnTouchListener {
      * @param dismissPosition Position of list
      */
     protected void performDismiss(final View dismissView, final int dismissPosition, boolean doPendingDismiss, final boolean triggerAction) {
+        if (translationDismissEnabled) {
+            performTranslationDismiss(dismissView, dismissPosition, doPendingDismiss, triggerAction);
+            return;
+        }
         if (dismissView != null) {
             final ViewGroup.LayoutParams lp = dismissView.getLayoutParams();
             final int originalHeight = dismissView.getHeight();
@@ -1540,11 +3337,146 @@ public class SwipeListViewTouchListener implements View.OnTouchListener {
         }
     }
 
+    /**
+     * Adds a row to the collapse that starts on the next frame, so the rows dismissed
+     * together share a single animator
+     *
+     * @param dismissView      Row, or view of the row, to dismiss
+     * @param dismissPosition  Position of the row
+     * @param doPendingDismiss If the dismiss is reported when the collapse ends
+     * @param triggerAction    If the swipe action is reported when the collapse ends
+     */
+    private void performTranslationDismiss(View dismissView, int dismissPosition, boolean doPendingDismiss, boolean triggerAction) {
+        if (dismissView == null) {
+            return;
+        }
+        // Only a swipe dismiss reports its action; other dismisses leave no gesture behind.
+        collapseTriggersAction |= doPendingDismiss && triggerAction;
+        collapseResetsCell |= doPendingDismiss;
+        for (PendingDismissData pendingDismiss : pendingDismisses) {
+            if (pendingDismiss.position == dismissPosition) {
+                return;
+            }
+        }
+        pendingDismisses.add(new PendingDismissData(dismissPosition, dismissView));
+        if (!collapseScheduled) {
+            collapseScheduled = true;
+            ViewCompat.postOnAnimation(swipeListView, startCollapse);
+        }
+    }
+
+    /**
+     * Determines if dismissed rows are being collapsed, or are about to be, and have not
+     * been reported yet
+     *
+     * @return True if they are
+     */
+    protected boolean isCollapsing() {
+        return collapseScheduled || collapseAnimator != null;
+    }
+
+    /**
+     * Jumps to the end of the collapse in progress, reporting its dismisses, before the
+     * rows it moves are laid out or scrolled
+     */
+    protected void finishCollapse() {
+        if (collapseAnimator != null) {
+            collapseAnimator.end();
+        }
+    }
+
+    /**
+     * Fades out the visible rows pending dismiss and slides each row below them up by the
+     * height of the dismissed rows above it. Nothing is laid out until the collapse ends,
+     * when the dismiss is reported and the adapter changes. Rows dismissed while a collapse
+     * runs join it: the new collapse carries on from where the rows are.
+     */
+    private final Runnable startCollapse = new Runnable() {
+        @Override
+        public void run() {
+            collapseScheduled = false;
+            if (collapseAnimator != null) {
+                ValueAnimator superseded = collapseAnimator;
+                collapseAnimator = null;
+                superseded.cancel();
+            }
+            int first = swipeListView.getFirstVisiblePosition();
+            final View[] rows = new View[swipeListView.getChildCount()];
+            final boolean[] dismissed = new boolean[rows.length];
+            final float[] offsets = new float[rows.length];
+            final float[] fromY = new float[rows.length];
+            final float[] fromAlpha = new float[rows.length];
+            for (PendingDismissData pendingDismiss : pendingDismisses) {
+                int index = pendingDismiss.position - first;
+                if (index >= 0 && index < rows.length) {
+                    dismissed[index] = true;
+                }
+            }
+            float collapsed = 0;
+            for (int i = 0; i < rows.length; i++) {
+                rows[i] = swipeListView.getChildAt(i);
+                offsets[i] = collapsed;
+                fromY[i] = getTranslationY(rows[i]);
+                fromAlpha[i] = getAlpha(rows[i]);
+                if (dismissed[i]) {
+                    collapsed += rows[i].getHeight();
+                }
+            }
+
+            final ValueAnimator animator = ValueAnimator.ofFloat(0f, 1f).setDuration(animationTime);
+            animator.addUpdateListener(new ValueAnimator.AnimatorUpdateListener() {
+                @Override
+                public void onAnimationUpdate(ValueAnimator valueAnimator) {
+                    if (valueAnimator != collapseAnimator) {
+                        return;
+                    }
+                    float fraction = (Float) valueAnimator.getAnimatedValue();
+                    for (int i = 0; i < rows.length; i++) {
+                        if (dismissed[i]) {
+                            setAlpha(rows[i], fromAlpha[i] * (1f - fraction));
+                        } else if (offsets[i] > 0 || fromY[i] != 0) {
+                            setTranslationY(rows[i], fromY[i] + (-offsets[i] - fromY[i]) * fraction);
+                        }
+                    }
+                }
+            });
+            animator.addListener(new AnimatorListenerAdapter() {
+                @Override
+                public void onAnimationEnd(Animator animation) {
+                    if (animation != collapseAnimator) {
+                        // Superseded by a collapse that took in more rows.
+                        return;
+                    }
+                    collapseAnimator = null;
+                    // Restored in the same frame as the layout that follows the adapter change.
+                    for (int i = 0; i < rows.length; i++) {
+                        setAlpha(rows[i], 1f);
+                        setTranslationY(rows[i], 0);
+                    }
+                    dismissAnimationRefCount = 0;
+                    boolean triggersAction = collapseTriggersAction;
+                    boolean resetsCell = collapseResetsCell;
+                    collapseTriggersAction = false;
+                    collapseResetsCell = false;
+                    removePendingDismisses(0);
+                    if (triggersAction) triggerAction();
+                    if (resetsCell) resetCell();
+                }
+            });
+            collapseAnimator = animator;
+            animator.start();
+        }
+    };
+
     protected void resetPendingDismisses() {
         pendingDismisses.clear();
     }
 
     protected void handlerPendingDismisses(final int originalHeight) {
+        if (translationDismissEnabled) {
+            // Reported when the collapse ends.
+            return;
+        }
         Handler handler = new Handler();
         handler.postDelayed(new Runnable() {
             @Override
@@ -1570,31 +3502,38 @@ public class SwipeListViewTouchListener implements View.OnTouchListener {
             // Reset view presentation
             if (pendingDismiss.view != null) {
                 setAlpha(pendingDismiss.view, 1f);
-                setTranslationX(pendingDismiss.view, 0);
-                lp = pendingDismiss.view.getLayoutParams();
-                lp.height = originalHeight;
-                pendingDismiss.view.setLayoutParams(lp);
+                setTranslationX(movingViewFor(pendingDismiss.view), 0);
+                if (!translationDismissEnabled) {
+                    lp = pendingDismiss.view.getLayoutParams();
+                    lp.height = originalHeight;
+                    pendingDismiss.view.setLayoutParams(lp);
+                }
             }
         }
 
         resetPendingDismisses();
     }
 
-    private void triggerAction() {
+    private boolean triggerAction() {
         // Trigger actions for each swiping state.
         if (swipeCurrentAction != SwipeListView.SWIPE_ACTION_NONE) {
             if (swipingRight && swipeEnabledForDirection(SwipeDirections.RIGHT)) {
                 swipeListView.onFinishedSwipeRight(downPosition);
+                return true;
             } else if (swipingLeft && swipeEnabledForDirection(SwipeDirections.LEFT)) {
                 swipeListView.onFinishedSwipeLeft(downPosition);
+                return true;
             }
         } else if (longSwipeCurrentAction != SwipeListView.LONG_SWIPE_ACTION_NONE) {
             if (swipingLongRight && longSwipeEnabledForDirection(SwipeDirections.RIGHT)) {
                 swipeListView.onFinishedLongSwipeRight(downPosition);
+                return true;
             } else if (swipingLongLeft && longSwipeEnabledForDirection(SwipeDirections.LEFT)) {
                 swipeListView.onFinishedLongSwipeLeft(downPosition);
+                return true;
             }
         }
+        return false;
     }
 
     private boolean swipeEnabledForDirection(SwipeDirections direction) {
@@ -1642,9 +3581,34 @@ public class SwipeListViewTouchListener implements View.OnTouchListener {
         return px;
     }
 
+    /**
+     * Determines if the current row has something to show behind its front content: back
+     * views, a back view still to inflate or attach, or a decorator
+     *
+     * @return True if it has
+     */
+    private boolean hasSwipeViews() {
+        return !areViewsNull() || backStubPending || sharedBackPending || swipeDecorator != null;
+    }
+
+    /**
+     * Inflates the back view of the current row, left as a ViewStub until the row is
+     * swiped, and brings it up to date with the current zone
+     */
+    private void inflateBackStub() {
+        backStubPending = false;
+        SwipeRowHolder holder = SwipeRowHolder.inflateBack(parentView, this);
+        setBackView(holder.back);
+        setBackIconLeft(holder.backIconLeft);
+        setBackIconRight(holder.backIconRight);
+        if (swipeZone != ZONE_UNSET) {
+            applySwipeZone(swipeZone);
+        }
+    }
+
     private boolean areViewsNull() {
         boolean areNull = false;
-        if (backIconLeft == null || backIconRight == null) {
+        if (backView == null || backIconLeft == null || backIconRight == null) {
             areNull = true;
         }
         return areNull;
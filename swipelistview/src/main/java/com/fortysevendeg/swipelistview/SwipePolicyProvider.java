@@ -0,0 +1,37 @@
+/*
+ * Copyright (C) 2013 47 Degrees, LLC
+ * http://47deg.com
+ * hello@47deg.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.fortysevendeg.swipelistview;
+
+/**
+ * Per row swipe rules, usually implemented by the adapter. The answer is resolved when a
+ * gesture starts and cached per stable id or per view type until the adapter changes, so
+ * it costs nothing while the row is swiped.
+ */
+public interface SwipePolicyProvider {
+
+    /**
+     * Gets the swipe mode of a row
+     *
+     * @param position Position of the row
+     * @return One of SwipeListView.SWIPE_MODE_NONE, SWIPE_MODE_BOTH, SWIPE_MODE_RIGHT or
+     * SWIPE_MODE_LEFT, or SwipeListView.SWIPE_MODE_DEFAULT to use the mode of the list
+     */
+    int getSwipeMode(int position);
+
+}
@@ -0,0 +1,156 @@
+/*
+ * Copyright (C) 2013 47 Degrees, LLC
+ * http://47deg.com
+ * hello@47deg.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.fortysevendeg.swipelistview;
+
+/**
+ * Extrapolates the swipe translation to the next frame from the recent velocity of the
+ * finger, so the front view does not trail behind it. The lead over the last sample is
+ * clamped to avoid overshooting when the finger stops or turns.
+ * <p/>
+ * It keeps the mean error of its predictions against the position the finger actually
+ * had at the time each prediction was made for, interpolated between the samples around
+ * it, to tune the horizon and clamp on a given device.
+ */
+class SwipePredictor {
+
+    // Weight of the newest velocity sample in the smoothed velocity.
+    private static final float SMOOTHING = 0.5f;
+
+    // Gaps longer than this between samples mean the finger stopped.
+    private static final long MAX_SAMPLE_GAP = 40;
+
+    // Predictions waiting for the samples around their target time. Fast digitizers
+    // deliver several samples per frame, so a few can be pending at once.
+    private static final int MAX_PENDING = 8;
+
+    private final long horizon;
+    private final float maxLead;
+
+    private long lastTime = -1;
+    private float lastPosition;
+    private float velocity;
+
+    private final long[] pendingTimes = new long[MAX_PENDING];
+    private final float[] pendingPredictions = new float[MAX_PENDING];
+    private int pendingCount;
+    private float errorSum;
+    private int errorCount;
+
+    /**
+     * @param horizon Milliseconds to predict ahead, usually one frame
+     * @param maxLead Maximum distance, in pixels, the prediction can lead the last sample
+     */
+    SwipePredictor(long horizon, float maxLead) {
+        this.horizon = horizon;
+        this.maxLead = maxLead;
+    }
+
+    /**
+     * Forgets the current gesture. The error statistics are kept.
+     */
+    void reset() {
+        lastTime = -1;
+        velocity = 0;
+        pendingCount = 0;
+    }
+
+    /**
+     * Adds a sample of the gesture
+     *
+     * @param time     Event time in milliseconds
+     * @param position Translation the finger asks for
+     */
+    void addSample(long time, float position) {
+        if (lastTime >= 0 && time > lastTime) {
+            scorePredictions(time, position);
+        }
+        if (lastTime >= 0) {
+            long dt = time - lastTime;
+            if (dt > MAX_SAMPLE_GAP) {
+                velocity = 0;
+            } else if (dt > 0) {
+                float sample = (position - lastPosition) / dt;
+                velocity = velocity == 0 ? sample : SMOOTHING * sample + (1 - SMOOTHING) * velocity;
+            }
+        }
+        lastTime = time;
+        lastPosition = position;
+    }
+
+    /**
+     * Scores the pending predictions whose target time is reached by a new sample, against
+     * the position interpolated between the previous sample and the new one
+     */
+    private void scorePredictions(long time, float position) {
+        int kept = 0;
+        for (int i = 0; i < pendingCount; i++) {
+            long target = pendingTimes[i];
+            if (target <= time) {
+                float actual = lastPosition + (position - lastPosition) * (target - lastTime) / (time - lastTime);
+                errorSum += Math.abs(pendingPredictions[i] - actual);
+                errorCount++;
+            } else {
+                pendingTimes[kept] = target;
+                pendingPredictions[kept] = pendingPredictions[i];
+                kept++;
+            }
+        }
+        pendingCount = kept;
+    }
+
+    /**
+     * Predicts the translation for the next frame, within the given bounds
+     *
+     * @param min Lowest translation allowed
+     * @param max Highest translation allowed
+     * @return Predicted translation
+     */
+    float predict(float min, float max) {
+        float lead = velocity * horizon;
+        if (lead > maxLead) {
+            lead = maxLead;
+        } else if (lead < -maxLead) {
+            lead = -maxLead;
+        }
+        float prediction = Math.max(min, Math.min(max, lastPosition + lead));
+        if (lastTime >= 0) {
+            if (pendingCount == MAX_PENDING) {
+                // Drop the oldest, it would be scored first.
+                System.arraycopy(pendingTimes, 1, pendingTimes, 0, MAX_PENDING - 1);
+                System.arraycopy(pendingPredictions, 1, pendingPredictions, 0, MAX_PENDING - 1);
+                pendingCount--;
+            }
+            pendingTimes[pendingCount] = lastTime + horizon;
+            pendingPredictions[pendingCount] = prediction;
+            pendingCount++;
+        }
+        return prediction;
+    }
+
+    /**
+     * Gets the mean distance between the predictions and the position of the finger at
+     * their target time
+     *
+     * @return Mean error in pixels
+     */
+    float getMeanError() {
+        return errorCount > 0 ? errorSum / errorCount : 0;
+    }
+
+}
@@ -0,0 +1,131 @@
+/*
+ * Copyright (C) 2013 47 Degrees, LLC
+ * http://47deg.com
+ * hello@47deg.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.fortysevendeg.swipelistview;
+
+import android.content.Context;
+import android.content.res.Configuration;
+import android.content.res.Resources;
+import android.graphics.drawable.Drawable;
+import android.os.Build;
+import android.support.v4.content.res.ResourcesCompat;
+import android.util.SparseArray;
+
+import java.util.WeakHashMap;
+
+/**
+ * Drawables and texts used as swipe feedback, resolved once when they are configured and
+ * shared by every SwipeListView of the application, across activities. Drawables are kept
+ * as their theme independent ConstantState, so each view gets its own instance, themed by
+ * the context of the view, without inflating the resource again. The cache is dropped when
+ * the configuration of the resources changes.
+ */
+final class SwipeResourceCache {
+
+    private static final WeakHashMap<Resources, SwipeResourceCache> caches = new WeakHashMap<Resources, SwipeResourceCache>();
+
+    private final Resources resources;
+    private final Configuration configuration;
+    private final SparseArray<Drawable.ConstantState> drawables = new SparseArray<Drawable.ConstantState>();
+    private final SparseArray<CharSequence> texts = new SparseArray<CharSequence>();
+
+    private SwipeResourceCache(Resources resources) {
+        this.resources = resources;
+        this.configuration = new Configuration(resources.getConfiguration());
+    }
+
+    /**
+     * Gets the cache shared by the contexts of the application of the given one
+     *
+     * @param context Context
+     * @return Cache
+     */
+    static SwipeResourceCache get(Context context) {
+        Context application = context.getApplicationContext();
+        if (application != null) {
+            context = application;
+        }
+        synchronized (caches) {
+            Resources resources = context.getResources();
+            SwipeResourceCache cache = caches.get(resources);
+            if (cache == null || cache.configuration.diff(resources.getConfiguration()) != 0) {
+                cache = new SwipeResourceCache(resources);
+                caches.put(resources, cache);
+            }
+            return cache;
+        }
+    }
+
+    /**
+     * Gets the constant state of a drawable resource
+     *
+     * @param resId Drawable resource, or 0
+     * @return Constant state, or null if there is no drawable
+     */
+    synchronized Drawable.ConstantState getDrawableState(int resId) {
+        if (resId == 0) {
+            return null;
+        }
+        Drawable.ConstantState state = drawables.get(resId);
+        if (state == null) {
+            Drawable drawable = ResourcesCompat.getDrawable(resources, resId, null);
+            state = drawable != null ? drawable.getConstantState() : null;
+            if (state != null) {
+                drawables.put(resId, state);
+            }
+        }
+        return state;
+    }
+
+    /**
+     * Gets a text resource
+     *
+     * @param resId Text resource, or 0
+     * @return Text, or null if there is no text
+     */
+    synchronized CharSequence getText(int resId) {
+        if (resId == 0) {
+            return null;
+        }
+        CharSequence text = texts.get(resId);
+        if (text == null) {
+            text = resources.getText(resId);
+            texts.put(resId, text);
+        }
+        return text;
+    }
+
+    /**
+     * Creates a drawable for a view from a cached constant state, resolving its theme
+     * attributes against the given theme where the platform supports it
+     *
+     * @param state Constant state, or null
+     * @param theme Theme of the context of the view, or null
+     * @return New drawable, or null
+     */
+    Drawable newDrawable(Drawable.ConstantState state, Resources.Theme theme) {
+        if (state == null) {
+            return null;
+        }
+        if (theme != null && Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP) {
+            return state.newDrawable(resources, theme);
+        }
+        return state.newDrawable(resources);
+    }
+
+}
@@ -0,0 +1,116 @@
+/*
+ * Copyright (C) 2013 47 Degrees, LLC
+ * http://47deg.com
+ * hello@47deg.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.fortysevendeg.swipelistview;
+
+import android.view.View;
+import android.view.ViewStub;
+
+/**
+ * Swipe sub-views of a row, resolved once when the row view is first seen and kept as a
+ * tag of the row so they survive recycling.
+ * <p/>
+ * The back view may be a ViewStub, in which case the back icons are null until
+ * {@link #inflateBack(View, SwipeListViewTouchListener)} inflates it.
+ */
+class SwipeRowHolder {
+
+    final View front;
+    final View back;
+    final View backIconLeft;
+    final View backIconRight;
+    final View frontIcon;
+    final View number;
+    final View detailText;
+    final View label;
+    final View moving;
+
+    // Position and bind generation the row was last laid out at, to detect rebinding.
+    int boundPosition = -1;
+    int boundGeneration;
+
+    private final int generation;
+
+    private SwipeRowHolder(View row, SwipeListViewTouchListener touchListener) {
+        front = find(row, touchListener.getSwipeFrontView());
+        back = find(row, touchListener.getSwipeBackView());
+        backIconLeft = find(row, touchListener.getSwipeBackIconLeft());
+        backIconRight = find(row, touchListener.getSwipeBackIconRight());
+        frontIcon = find(row, touchListener.getSwipeFrontIcon());
+        number = find(row, touchListener.getSwipeFrontNumber());
+        detailText = find(row, touchListener.getSwipeFrontDetailText());
+        label = find(row, touchListener.getSwipeFrontLabel());
+        moving = find(row, touchListener.getSwipeMovingView());
+        generation = touchListener.getRowHolderGeneration();
+    }
+
+    /**
+     * Gets the holder of a row, resolving it if the row has none yet or if the sub-view
+     * ids changed since it was resolved
+     *
+     * @param row           Row view
+     * @param touchListener Touch listener holding the sub-view ids
+     * @return Holder
+     */
+    static SwipeRowHolder of(View row, SwipeListViewTouchListener touchListener) {
+        Object tag = row.getTag(R.id.swipelistview__row_holder);
+        if (tag instanceof SwipeRowHolder && ((SwipeRowHolder) tag).generation == touchListener.getRowHolderGeneration()) {
+            return (SwipeRowHolder) tag;
+        }
+        SwipeRowHolder holder = new SwipeRowHolder(row, touchListener);
+        row.setTag(R.id.swipelistview__row_holder, holder);
+        return holder;
+    }
+
+    /**
+     * Gets the holder of a row, inflating its back view first if it is still a ViewStub.
+     * The inflated view keeps the id of the stub.
+     *
+     * @param row           Row view
+     * @param touchListener Touch listener holding the sub-view ids
+     * @return Holder with the inflated back view
+     */
+    static SwipeRowHolder inflateBack(View row, SwipeListViewTouchListener touchListener) {
+        SwipeRowHolder holder = of(row, touchListener);
+        if (!(holder.back instanceof ViewStub)) {
+            return holder;
+        }
+        ViewStub stub = (ViewStub) holder.back;
+        if (stub.getInflatedId() == View.NO_ID) {
+            stub.setInflatedId(stub.getId());
+        }
+        stub.inflate();
+        holder = new SwipeRowHolder(row, touchListener);
+        row.setTag(R.id.swipelistview__row_holder, holder);
+        return holder;
+    }
+
+    /**
+     * Determines if the back view is a ViewStub not inflated yet
+     *
+     * @return True if it is
+     */
+    boolean isBackStub() {
+        return back instanceof ViewStub;
+    }
+
+    private static View find(View row, int id) {
+        return id > 0 ? row.findViewById(id) : null;
+    }
+
+}
@@ -0,0 +1,104 @@
+/*
+ * Copyright (C) 2013 47 Degrees, LLC
+ * http://47deg.com
+ * hello@47deg.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.fortysevendeg.swipelistview;
+
+/**
+ * Compact description of the items selected in a SwipeListView. It either lists ranges of
+ * selected positions, or describes "every item except" a few, so a selection over rows the
+ * adapter has not loaded yet can be handed to a backend without a per row entry.
+ */
+public class SwipeSelection {
+
+    private final boolean allExcept;
+    private final int count;
+    private final int totalCount;
+    private final int[] ranges;
+    private final long[] ids;
+
+    SwipeSelection(boolean allExcept, int count, int totalCount, int[] ranges, long[] ids) {
+        this.allExcept = allExcept;
+        this.count = count;
+        this.totalCount = totalCount;
+        this.ranges = ranges;
+        this.ids = ids;
+    }
+
+    /**
+     * Determines if every item is selected except the ones listed.
+     *
+     * @return True if the listed ranges and ids are excluded, false if they are the selection.
+     */
+    public boolean isAllExcept() {
+        return allExcept;
+    }
+
+    /**
+     * @return Number of items selected.
+     */
+    public int getCount() {
+        return count;
+    }
+
+    /**
+     * @return Number of items in the data set the selection applies to.
+     */
+    public int getTotalCount() {
+        return totalCount;
+    }
+
+    /**
+     * Ranges of listed positions, as pairs of first position (inclusive) and last
+     * position (exclusive).
+     *
+     * @return Ranges, in ascending order.
+     */
+    public int[] getRanges() {
+        return ranges;
+    }
+
+    /**
+     * Ids of the excluded items of an "every item except" selection.
+     *
+     * @return Ids, or null if the selection lists positions only.
+     */
+    public long[] getIds() {
+        return ids;
+    }
+
+    /**
+     * Get if item is selected
+     *
+     * @param position position in list
+     * @return True if it is selected
+     */
+    public boolean contains(int position) {
+        boolean listed = false;
+        for (int i = 0; i < ranges.length; i += 2) {
+            if (position < ranges[i]) {
+                break;
+            }
+            if (position < ranges[i + 1]) {
+                listed = true;
+                break;
+            }
+        }
+        return allExcept ? !listed && position < totalCount : listed;
+    }
+
+}
@@ -0,0 +1,63 @@
+/*
+ * Copyright (C) 2013 47 Degrees, LLC
+ * http://47deg.com
+ * hello@47deg.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.fortysevendeg.swipelistview;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class LongIntMapTest {
+
+    @Test
+    public void missingKeysReturnTheDefault() {
+        SwipeListViewTouchListener.LongIntMap map = new SwipeListViewTouchListener.LongIntMap();
+        assertEquals(-2, map.get(42L, -2));
+        map.put(42L, 1);
+        assertEquals(-2, map.get(41L, -2));
+        assertEquals(1, map.get(42L, -2));
+    }
+
+    @Test
+    public void putReplacesAndKeepsKeysOrdered() {
+        SwipeListViewTouchListener.LongIntMap map = new SwipeListViewTouchListener.LongIntMap();
+        for (int i = 0; i < 100; i++) {
+            long id = (i * 37L) % 100 - 50;
+            map.put(id, i);
+        }
+        map.put(Long.MAX_VALUE, 7);
+        map.put(-50L, 3);
+        assertEquals(101, map.size());
+        assertEquals(3, map.get(-50L, -1));
+        assertEquals(7, map.get(Long.MAX_VALUE, -1));
+        for (int i = 1; i < 100; i++) {
+            long id = (i * 37L) % 100 - 50;
+            assertEquals(i, map.get(id, -1));
+        }
+    }
+
+    @Test
+    public void clearEmptiesTheMap() {
+        SwipeListViewTouchListener.LongIntMap map = new SwipeListViewTouchListener.LongIntMap();
+        map.put(1L, 1);
+        map.clear();
+        assertEquals(0, map.size());
+        assertEquals(-1, map.get(1L, -1));
+    }
+
+}
@@ -0,0 +1,176 @@
+/*
+ * Copyright (C) 2013 47 Degrees, LLC
+ * http://47deg.com
+ * hello@47deg.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.fortysevendeg.swipelistview;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class SelectionJournalTest {
+
+    private File file;
+    private SelectionJournal journal;
+
+    @Before
+    public void setUp() throws IOException {
+        file = File.createTempFile("selection", ".journal");
+        file.delete();
+        journal = new SelectionJournal(file);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        journal.close();
+        file.delete();
+    }
+
+    @Test
+    public void setAndClearOnlyTouchTheirBit() throws IOException {
+        journal.set(0, true);
+        journal.set(1, true);
+        journal.set(63, true);
+        journal.set(64, true);
+        journal.set(1, false);
+
+        assertTrue(journal.get(0));
+        assertFalse(journal.get(1));
+        assertFalse(journal.get(2));
+        assertTrue(journal.get(63));
+        assertTrue(journal.get(64));
+        assertFalse(journal.get(65));
+    }
+
+    @Test
+    public void unknownIdsAreNotSet() throws IOException {
+        assertFalse(journal.get(-1));
+        assertFalse(journal.get(1L << 40));
+        journal.set(1L << 40, false);
+        assertFalse(journal.get(1L << 40));
+    }
+
+    @Test
+    public void negativeAndHugeIdsAreKept() throws IOException {
+        long[] ids = {Long.MIN_VALUE, -65, -64, -1, 1L << 35, Long.MAX_VALUE};
+        for (long id : ids) {
+            journal.set(id, true);
+        }
+        for (long id : ids) {
+            assertTrue(journal.get(id));
+        }
+        assertFalse(journal.get(-2));
+        assertFalse(journal.get(-63));
+        assertTrue(journal.get(1L << 35));
+        assertFalse(journal.get(100000));
+        assertArrayEquals(new long[]{Long.MIN_VALUE, 1, -65, 2, -1, 1, 1L << 35, 1, Long.MAX_VALUE, 1},
+                journal.getIdRuns());
+    }
+
+    @Test
+    public void hashedIdsSurviveGrowthAndReopening() throws IOException {
+        long[] ids = new long[5000];
+        long id = 0x5deece66dL;
+        for (int i = 0; i < ids.length; i++) {
+            id = id * 6364136223846793005L + 1442695040888963407L;
+            ids[i] = id;
+            journal.set(id, true);
+        }
+        journal.set(ids[0], false);
+        journal.close();
+
+        journal = new SelectionJournal(file);
+        assertFalse(journal.get(ids[0]));
+        for (int i = 1; i < ids.length; i++) {
+            assertTrue(journal.get(ids[i]));
+        }
+        assertEquals((ids.length - 1) * 2, journal.getIdRuns().length);
+    }
+
+    @Test
+    public void idRunsGroupConsecutiveIds() throws IOException {
+        for (long id : new long[]{3, 4, 5, 63, 64, 100}) {
+            journal.set(id, true);
+        }
+        assertArrayEquals(new long[]{3, 3, 63, 2, 100, 1}, journal.getIdRuns());
+
+        journal.clear();
+        assertArrayEquals(new long[0], journal.getIdRuns());
+    }
+
+    @Test
+    public void tableGrowsOnlyForManyBlocks() throws IOException {
+        long initialLength = file.length();
+        journal.set(7, true);
+        journal.set(100000, true);
+        assertEquals(initialLength, file.length());
+
+        for (int block = 0; block < 1000; block++) {
+            journal.set(block * 64L + 1, true);
+        }
+        assertTrue(file.length() > initialLength);
+        assertTrue(journal.get(7));
+        assertTrue(journal.get(100000));
+        assertFalse(journal.get(99999));
+        assertTrue(journal.get(999 * 64L + 1));
+        assertFalse(journal.get(999 * 64L + 2));
+    }
+
+    @Test
+    public void reopeningKeepsTheSelection() throws IOException {
+        journal.set(42, true);
+        journal.set(5000, true);
+        journal.setInverted(true);
+        journal.setTotal(6000);
+        journal.close();
+
+        journal = new SelectionJournal(file);
+        assertTrue(journal.get(42));
+        assertTrue(journal.get(5000));
+        assertFalse(journal.get(43));
+        assertTrue(journal.isInverted());
+        assertEquals(6000, journal.getTotal());
+        assertArrayEquals(new long[]{42, 1, 5000, 1}, journal.getIdRuns());
+    }
+
+    @Test
+    public void fileThatIsNotAJournalStartsEmpty() throws IOException {
+        journal.close();
+        FileOutputStream out = new FileOutputStream(file);
+        try {
+            out.write(new byte[64]);
+            out.write(new byte[]{1, 2, 3, 4});
+        } finally {
+            out.close();
+        }
+
+        journal = new SelectionJournal(file);
+        assertArrayEquals(new long[0], journal.getIdRuns());
+        assertFalse(journal.isInverted());
+        assertEquals(0, journal.getTotal());
+    }
+
+}
@@ -0,0 +1,134 @@
+/*
+ * Copyright (C) 2013 47 Degrees, LLC
+ * http://47deg.com
+ * hello@47deg.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.fortysevendeg.swipelistview;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static com.fortysevendeg.swipelistview.SwipeListViewTouchListener.ZONE_LONG_RIGHT;
+import static com.fortysevendeg.swipelistview.SwipeListViewTouchListener.ZONE_NEAR_RIGHT;
+import static com.fortysevendeg.swipelistview.SwipeListViewTouchListener.ZONE_NONE;
+import static com.fortysevendeg.swipelistview.SwipeListViewTouchListener.ZONE_REGRET;
+import static com.fortysevendeg.swipelistview.SwipeListViewTouchListener.ZONE_SHORT_RIGHT;
+import static com.fortysevendeg.swipelistview.SwipeListViewTouchListener.overdrawCount;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Replays the zone changes and back view fades of a swipe, the way the touch listener
+ * reports them, and follows the container background they leave drawn
+ */
+public class SwipeBackgroundStateTest {
+
+    private SwipeBackgroundState state;
+    private boolean containerDrawn;
+
+    @Before
+    public void setUp() {
+        state = new SwipeBackgroundState();
+        state.setLayersEnabled(true);
+        containerDrawn = true;
+    }
+
+    private void enterZone(int zone, boolean backOpaque) {
+        if (state.enterZone(zone, backOpaque)) {
+            containerDrawn = true;
+        }
+    }
+
+    private void backFadedIn() {
+        if (state.backFadedIn()) {
+            containerDrawn = false;
+        }
+    }
+
+    private void release() {
+        if (state.release()) {
+            containerDrawn = true;
+        }
+    }
+
+    private int overdraw() {
+        return overdrawCount(containerDrawn, true, true);
+    }
+
+    @Test
+    public void swipeDropsTheContainerOnceTheBackFadedIn() {
+        enterZone(ZONE_NEAR_RIGHT, true);
+        assertEquals(3, overdraw());
+
+        enterZone(ZONE_SHORT_RIGHT, true);
+        // The back view is still fading in: the container shows through it.
+        assertTrue(containerDrawn);
+        assertEquals(3, overdraw());
+
+        backFadedIn();
+        assertFalse(containerDrawn);
+        assertEquals(2, overdraw());
+
+        enterZone(ZONE_LONG_RIGHT, true);
+        backFadedIn();
+        assertFalse(containerDrawn);
+
+        release();
+        assertTrue(containerDrawn);
+        assertFalse(state.isHidden());
+    }
+
+    @Test
+    public void turningBackDrawsTheContainerAgain() {
+        enterZone(ZONE_SHORT_RIGHT, true);
+        backFadedIn();
+        assertFalse(containerDrawn);
+
+        enterZone(ZONE_SHORT_RIGHT | ZONE_REGRET, true);
+        assertTrue(containerDrawn);
+        backFadedIn();
+        assertTrue(containerDrawn);
+
+        enterZone(ZONE_NONE, true);
+        assertTrue(containerDrawn);
+    }
+
+    @Test
+    public void fadeEndingAfterLeavingTheZoneKeepsTheContainer() {
+        enterZone(ZONE_SHORT_RIGHT, true);
+        enterZone(ZONE_NEAR_RIGHT, true);
+        backFadedIn();
+        assertTrue(containerDrawn);
+    }
+
+    @Test
+    public void translucentBackKeepsTheContainer() {
+        enterZone(ZONE_SHORT_RIGHT, false);
+        backFadedIn();
+        assertTrue(containerDrawn);
+        assertEquals(3, overdraw());
+    }
+
+    @Test
+    public void containerIsKeptWithoutLayers() {
+        state.setLayersEnabled(false);
+        enterZone(ZONE_SHORT_RIGHT, true);
+        backFadedIn();
+        assertTrue(containerDrawn);
+    }
+
+}
@@ -0,0 +1,58 @@
+/*
+ * Copyright (C) 2013 47 Degrees, LLC
+ * http://47deg.com
+ * hello@47deg.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.fortysevendeg.swipelistview;
+
+import org.junit.Test;
+
+import static com.fortysevendeg.swipelistview.SwipeListViewTouchListener.isFlingSwap;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class SwipeFlingTest {
+
+    private static final float THRESHOLD = 1000f;
+
+    @Test
+    public void flickClosesAnOpenRow() {
+        // Open to the right, flicked back to the left a few pixels.
+        assertTrue(isFlingSwap(-2500f, -12f, THRESHOLD, true, true, false));
+        // Open to the left, flicked back to the right.
+        assertTrue(isFlingSwap(2500f, 12f, THRESHOLD, true, false, false));
+    }
+
+    @Test
+    public void flickAwayFromTheClosedPlaceKeepsARowOpen() {
+        assertFalse(isFlingSwap(2500f, 12f, THRESHOLD, true, true, true));
+        assertFalse(isFlingSwap(-2500f, -12f, THRESHOLD, true, false, true));
+    }
+
+    @Test
+    public void flickOpensAClosedRowOnlyTowardsAnEnabledDirection() {
+        assertTrue(isFlingSwap(2500f, 12f, THRESHOLD, false, false, true));
+        assertFalse(isFlingSwap(2500f, 12f, THRESHOLD, false, false, false));
+    }
+
+    @Test
+    public void slowOrReversedMovesAreNotFlings() {
+        assertFalse(isFlingSwap(-900f, -12f, THRESHOLD, true, true, false));
+        assertFalse(isFlingSwap(2500f, -12f, THRESHOLD, true, true, false));
+        assertFalse(isFlingSwap(2500f, 0f, THRESHOLD, false, false, true));
+    }
+
+}
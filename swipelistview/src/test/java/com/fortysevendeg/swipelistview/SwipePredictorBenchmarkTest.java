@@ -0,0 +1,111 @@
+/*
+ * Copyright (C) 2013 47 Degrees, LLC
+ * http://47deg.com
+ * hello@47deg.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.fortysevendeg.swipelistview;
+
+import org.junit.Test;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Replays swipe traces, one "event time (ms) translation (px)" sample per line, through
+ * the predictor and compares its error with the lag of the last sample, both measured
+ * against the position of the finger one frame ahead. More traces, for instance recorded
+ * with a MotionEvent logger on a device, can be added to the traces folder and the list
+ * below.
+ */
+public class SwipePredictorBenchmarkTest {
+
+    private static final String[] TRACES = {
+            "fling_right_240hz.txt",
+            "drag_left_120hz.txt",
+            "regret_60hz.txt",
+            "drag_hold_release_120hz.txt"
+    };
+
+    // Same horizon and lead as the touch listener, with 24dp at xxhdpi.
+    private static final long HORIZON = 16;
+    private static final float MAX_LEAD = 24 * 3f;
+
+    @Test
+    public void predictionTrailsLessThanTheLastSample() throws IOException {
+        for (String trace : TRACES) {
+            List<double[]> samples = load(trace);
+
+            SwipePredictor predictor = new SwipePredictor(HORIZON, MAX_LEAD);
+            for (double[] sample : samples) {
+                predictor.addSample((long) sample[0], (float) sample[1]);
+                predictor.predict(-Float.MAX_VALUE, Float.MAX_VALUE);
+            }
+            float predictionError = predictor.getMeanError();
+            float lagError = meanLag(samples);
+
+            System.out.println(String.format("%s: prediction %.2fpx, no prediction %.2fpx", trace, predictionError, lagError));
+            assertTrue(trace + " prediction error " + predictionError + " should be below " + lagError, predictionError < lagError);
+        }
+    }
+
+    /**
+     * Gets the mean distance between each sample and the position of the finger a frame
+     * later, which is how far the front view trails without prediction
+     */
+    private static float meanLag(List<double[]> samples) {
+        double sum = 0;
+        int count = 0;
+        for (double[] sample : samples) {
+            double target = sample[0] + HORIZON;
+            for (int i = 1; i < samples.size(); i++) {
+                double[] from = samples.get(i - 1);
+                double[] to = samples.get(i);
+                if (from[0] < target && target <= to[0]) {
+                    double actual = from[1] + (to[1] - from[1]) * (target - from[0]) / (to[0] - from[0]);
+                    sum += Math.abs(sample[1] - actual);
+                    count++;
+                    break;
+                }
+            }
+        }
+        return count > 0 ? (float) (sum / count) : 0;
+    }
+
+    private List<double[]> load(String trace) throws IOException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(getClass().getResourceAsStream("traces/" + trace), "UTF-8"));
+        List<double[]> samples = new ArrayList<double[]>();
+        try {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                line = line.trim();
+                if (line.length() == 0 || line.startsWith("#")) {
+                    continue;
+                }
+                String[] fields = line.split("\\s+");
+                samples.add(new double[]{Long.parseLong(fields[0]), Double.parseDouble(fields[1])});
+            }
+        } finally {
+            reader.close();
+        }
+        return samples;
+    }
+
+}